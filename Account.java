@@ -2,6 +2,8 @@
 Account.java
 - Represents a single bank account in the system.
 - An account stores ID, name, account status, subscription plan type, and the current monetary balance
+- Balances are held as a whole number of cents so arithmetic is exact; the
+  double-based accessors convert at the boundary.
 - this class will provide basic operations such as crediting and debiting funds,
   as well as getters and setters for account state management.
 */ 
@@ -10,16 +12,32 @@ public class Account {
     private final String name;      // raw name (trimmed)
     private char status;            // 'A' active, 'D' disabled
     private String plan;            // "SP" or "NP"
-    private double balance;
+    private long balanceCents;      // balance in cents
+    private AccountChangeListener listener; // notified after every mutation, may be null
 
     public Account(String id, String name, char status, double balance, String plan) {
         this.id = id;
         this.name = name;
         this.status = status;
-        this.balance = balance;
+        this.balanceCents = FixedFmt.toCents(balance);
         this.plan = plan == null ? "SP" : plan;
     }
 
+    /**
+     * Constructs a new Account object with a balance given in cents
+     * @param id           Unique 5-digit account identifier
+     * @param name         Name of the account holder
+     * @param status       Account status ('A' for active, 'D' for disabled)
+     * @param balanceCents Initial account balance in cents
+     * @param plan         Account plan ("SP" or "NP"); defaults to "SP" if null
+     * @return the new account
+     */
+    public static Account ofCents(String id, String name, char status, long balanceCents, String plan) {
+        Account acc = new Account(id, name, status, 0.0, plan);
+        acc.balanceCents = balanceCents;
+        return acc;
+    }
+
     /**
      * Constructs a new Account object.
      *
@@ -53,7 +71,12 @@ public class Account {
     /**
      * @return the current account balance
      */
-    public double getBalance() { return balance; }
+    public double getBalance() { return getBalanceCents() / 100.0; }
+
+    /**
+     * @return the current account balance in cents
+     */
+    public long getBalanceCents() { return balanceCents; }
 
     /**
      * Checks whether the account is disabled
@@ -61,24 +84,45 @@ public class Account {
      */
     public boolean isDisabled() { return status == 'D'; }
 
+    /**
+     * Registers the listener notified whenever the balance, status or plan changes
+     * @param listener Listener to notify, or null to stop notifications
+     */
+    public void setChangeListener(AccountChangeListener listener) { this.listener = listener; }
+
     /**
      * Updates the account status
      * @param status New status ('A' or 'D')
      */
-    public void setStatus(char status) { this.status = status; }
+    public void setStatus(char status) {
+        this.status = status;
+        changed();
+    }
 
     /**
      * Updates the account plan
      * @param plan New plan type ("SP" or "NP")
      */
-    public void setPlan(String plan) { this.plan = plan; }
+    public void setPlan(String plan) {
+        this.plan = plan;
+        changed();
+    }
 
     /**
      * Adds a specified amount to the account balance
      * @param amount Amount to be added to the balance
      */
     public void credit(double amount) {
-        balance += amount;
+        creditCents(FixedFmt.toCents(amount));
+    }
+
+    /**
+     * Adds a specified number of cents to the account balance
+     * @param cents Amount to be added to the balance, in cents
+     */
+    public void creditCents(long cents) {
+        balanceCents += cents;
+        changed();
     }
 
     /**
@@ -88,8 +132,24 @@ public class Account {
      *                                  or exceeds the available balance
      */
     public void debit(double amount) {
-        if (amount < 0) throw new IllegalArgumentException("Amount must be non-negative.");
-        if (amount > balance) throw new IllegalArgumentException("Insufficient funds.");
-        balance -= amount;
+        debitCents(FixedFmt.toCents(amount));
+    }
+
+    /**
+     * Subtracts a specified number of cents from the account balance
+     * @param cents Amount to be withdrawn, in cents
+     * @throws IllegalArgumentException if the amount is negative
+     *                                  or exceeds the available balance
+     */
+    public void debitCents(long cents) {
+        if (cents < 0) throw new IllegalArgumentException("Amount must be non-negative.");
+        if (cents > getBalanceCents()) throw new IllegalArgumentException("Insufficient funds.");
+        balanceCents -= cents;
+        changed();
+    }
+
+    // notifies the registered listener, if any, that this account was mutated
+    private void changed() {
+        if (listener != null) listener.accountChanged(this);
     }
 }
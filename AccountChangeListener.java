@@ -0,0 +1,15 @@
+/**
+ * AccountChangeListener.java
+ - Callback interface notified whenever an Account's balance, status
+   or plan is mutated.
+ - Repositories register a listener on the accounts they hold so they
+   can track which records need to be persisted.
+ */
+
+public interface AccountChangeListener {
+    /**
+     * Called after an account has been mutated
+     * @param account The account that changed
+     */
+    void accountChanged(Account account);
+}
@@ -0,0 +1,101 @@
+/**
+ * AccountId.java
+ - Typed 5-digit account identifier backed by an int.
+ - Every possible id (00000 to 99999) has exactly one canonical instance,
+   built when the class is initialized, so ids can be compared with ==
+   and parsing or looking one up never allocates.
+ - The zero-padded text form is built on first use and cached.
+ */
+public final class AccountId {
+    public static final int MAX = 99999; // highest 5-digit account number
+
+    private static final AccountId[] POOL = new AccountId[MAX + 1];
+    static {
+        for (int n = 0; n <= MAX; n++) POOL[n] = new AccountId(n);
+    }
+
+    private final int value;
+    private String text; // cached 5-digit form; racy but immutable once built
+
+    private AccountId(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the canonical instance for an account number
+     * @param value Account number, 0 to 99999
+     * @return the AccountId for value
+     */
+    public static AccountId of(int value) {
+        if (value < 0 || value > MAX) throw new IllegalArgumentException("Invalid account number.");
+        return POOL[value];
+    }
+
+    /**
+     * Parses user or file input the same way FixedFmt.acct5 normalizes it:
+       surrounding blanks are ignored and anything that is not a number is 0
+     * @param accountId Account number text, may be null
+     * @return the canonical AccountId, or null if the number is outside 0 to 99999
+     */
+    public static AccountId parse(String accountId) {
+        if (accountId == null) return POOL[0];
+
+        int start = 0;
+        int end = accountId.length();
+        while (start < end && accountId.charAt(start) <= ' ') start++;
+        while (end > start && accountId.charAt(end - 1) <= ' ') end--;
+
+        // fast path: up to five plain digits
+        if (end > start && end - start <= 5) {
+            int n = 0;
+            int i = start;
+            for (; i < end; i++) {
+                int d = accountId.charAt(i) - '0';
+                if (d < 0 || d > 9) break;
+                n = n * 10 + d;
+            }
+            if (i == end) return POOL[n];
+        }
+
+        // signs, longer numbers and garbage are rare: same rules as Integer.parseInt
+        int n = 0;
+        try { n = Integer.parseInt(accountId.substring(start, end)); } catch (NumberFormatException ignored) {}
+        return n >= 0 && n <= MAX ? POOL[n] : null;
+    }
+
+    /**
+     * @return the account number as an int
+     */
+    public int intValue() {
+        return value;
+    }
+
+    /**
+     * @return the account number as a 5-digit, zero-padded string
+     */
+    @Override
+    public String toString() {
+        String s = text;
+        if (s == null) {
+            char[] digits = new char[5];
+            int n = value;
+            for (int i = 4; i >= 0; i--) {
+                digits[i] = (char) ('0' + n % 10);
+                n /= 10;
+            }
+            s = new String(digits);
+            text = s;
+        }
+        return s;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof AccountId && ((AccountId) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return value;
+    }
+}
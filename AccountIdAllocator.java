@@ -0,0 +1,75 @@
+import java.util.BitSet;
+
+/**
+ * AccountIdAllocator.java
+ - Hands out account numbers in O(1) amortized time: a high-water mark of
+   the highest number in use, plus a bitset of the numbers below it that
+   are free again (gaps in the loaded file and deleted accounts).
+ - The lowest free number is reused first; only when there are none does
+   the high-water mark move up. 00000 is never handed out.
+ - All methods are synchronized, so concurrent create calls can never
+   receive the same number.
+ */
+public class AccountIdAllocator {
+    private final BitSet free = new BitSet(AccountId.MAX + 1); // free numbers at or below highWater
+    private int highWater = 0; // highest number in use or handed out, 0 if none
+    private int firstFree = 1; // no number below this is free
+
+    /**
+     * Forgets every number, as before a load
+     */
+    public synchronized void reset() {
+        free.clear();
+        highWater = 0;
+        firstFree = 1;
+    }
+
+    /**
+     * Records that an account with the given number exists; numbers between
+       the old high-water mark and id become free
+     * @param id Account number
+     */
+    public synchronized void markUsed(int id) {
+        if (id < 1 || id > AccountId.MAX) return;
+        if (id > highWater) {
+            free.set(highWater + 1, id);
+            highWater = id;
+        } else {
+            free.clear(id);
+        }
+    }
+
+    /**
+     * Returns a number to the pool once its account is removed
+     * @param id Account number
+     */
+    public synchronized void release(int id) {
+        if (id < 1 || id > highWater) return;
+        free.set(id);
+        firstFree = Math.min(firstFree, id);
+    }
+
+    /**
+     * Reserves the lowest free account number
+     * @return the reserved number
+     * @throws IllegalArgumentException if all 5-digit numbers are in use
+     */
+    public synchronized int allocate() {
+        int id = free.nextSetBit(firstFree);
+        if (id >= 0) {
+            free.clear(id);
+            firstFree = id + 1;
+            return id;
+        }
+        if (highWater == AccountId.MAX) throw new IllegalArgumentException("No account numbers available.");
+        return ++highWater;
+    }
+
+    /**
+     * @param id Account number
+     * @return true if id is in use or reserved
+     */
+    public synchronized boolean isUsed(int id) {
+        return id >= 1 && id <= highWater && !free.get(id);
+    }
+}
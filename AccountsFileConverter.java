@@ -0,0 +1,70 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * AccountsFileConverter.java
+ * Converts accounts files between the 37-character text format read by
+   FileAccountsRepository and the binary format read by BinaryAccountsRepository.
+ * Usage: java AccountsFileConverter (to-binary|to-text) <inputFile> <outputFile>
+ */
+public class AccountsFileConverter {
+    public static void main(String[] args) throws IOException {
+        if (args == null || args.length < 3) {
+            System.out.println("Usage: java AccountsFileConverter (to-binary|to-text) <inputFile> <outputFile>");
+            return;
+        }
+
+        if ("to-binary".equals(args[0])) {
+            textToBinary(args[1], args[2]);
+        } else if ("to-text".equals(args[0])) {
+            binaryToText(args[1], args[2]);
+        } else {
+            System.out.println("Unknown conversion: " + args[0]);
+        }
+    }
+
+    /**
+     * Converts a fixed-width text accounts file into the binary format
+     * @param textFile   Path of the text accounts file to read
+     * @param binaryFile Path of the binary accounts file to write
+     * @throws IOException if the text file cannot be read
+     */
+    public static void textToBinary(String textFile, String binaryFile) throws IOException {
+        BinaryAccountsRepository binary = new BinaryAccountsRepository(binaryFile);
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = FileAccountsRepository.parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if ("END_OF_FILE".equals(acc.getName())) break;
+                binary.add(acc);
+            }
+        }
+        binary.save();
+    }
+
+    /**
+     * Converts a binary accounts file into the fixed-width text format,
+       including the END_OF_FILE trailer record
+     * @param binaryFile Path of the binary accounts file to read
+     * @param textFile   Path of the text accounts file to write
+     * @throws IOException if the text file cannot be written
+     */
+    public static void binaryToText(String binaryFile, String textFile) throws IOException {
+        BinaryAccountsRepository binary = new BinaryAccountsRepository(binaryFile);
+        binary.load();
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(textFile))) {
+            for (Account acc : binary.accountsInIdOrder()) {
+                writer.println(FileAccountsRepository.formatRecord(acc));
+            }
+            writer.println(FileAccountsRepository.formatRecord(
+                    Account.ofCents("00000", "END_OF_FILE", 'A', 0, "SP")));
+        }
+    }
+}
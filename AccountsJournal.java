@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * AccountsJournal.java
+ - Append-only write-ahead journal of account mutations.
+ - Every balance, status or plan change, as well as every account added or
+   removed, is appended as one line holding the account's full new state,
+   so replaying the journal in order over the last saved accounts file
+   restores the in-memory state after a crash.
+ - Appends go straight to the file; forcing them to disk is batched over a
+   configurable group-commit window so durability does not cost one fsync
+   per transaction.
+ - The entries of one operation that changes several accounts (a transfer)
+   can be grouped between begin() and commit(). A group is written in one
+   go between a "B" and a "C" line, and replay skips a group whose "C" line
+   is missing, so it is recovered completely or not at all.
+ - A torn last line left by a crash is terminated before new entries are
+   appended, so it cannot run into the next entry.
+ - The journal is truncated once the accounts file has been saved.
+ */
+
+public class AccountsJournal {
+    private final String journalFilePath;
+    private final long groupCommitMillis; // <= 0 forces every append to disk immediately
+    private final Charset charset = Charset.defaultCharset();
+
+    private FileChannel channel;                // opened on the first append
+    private ScheduledExecutorService committer; // forces pending appends every window
+    private volatile boolean unsynced = false;  // appended data not yet forced to disk
+    private long entries = 0;                   // entries appended since construction
+    private StringBuilder group;                // entries of the open group, or null
+    private int groupDepth = 0;                 // nesting level of begin() calls
+
+    /**
+     * Constructs a journal backed by the given file
+     * @param journalFilePath   Path of the journal file
+     * @param groupCommitMillis Window over which appends are batched into one fsync;
+     *                          0 or less forces every append to disk immediately
+     */
+    public AccountsJournal(String journalFilePath, long groupCommitMillis) {
+        this.journalFilePath = journalFilePath;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    /**
+     * Records the current state of an account that was added or mutated
+     * @param account Account whose state should be journaled
+     */
+    public void recordUpdate(Account account) {
+        // U NNNNN_AAAAAAAAAAAAAAAAAAAA_S_PPPPPPPP PP
+        append("U " + FileAccountsRepository.formatRecord(account) + " " + FixedFmt.misc2(account.getPlan()));
+    }
+
+    /**
+     * Records that an account was removed
+     * @param accountId 5-digit identifier of the removed account
+     */
+    public void recordRemove(String accountId) {
+        // R NNNNN
+        append("R " + FixedFmt.acct5(accountId));
+    }
+
+    /**
+     * Replays all complete journal entries in the order they were written
+     * @param onUpdate Receives the journaled state of each added or mutated account
+     * @param onRemove Receives the 5-digit id of each removed account
+     */
+    public void replay(Consumer<Account> onUpdate, Consumer<String> onRemove) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalFilePath))) {
+            List<String> grouped = null; // entries of a group whose "C" line has not been read yet
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("B")) {
+                    grouped = new ArrayList<>(); // an unfinished group before this one is dropped
+                } else if (line.equals("C")) {
+                    if (grouped != null) {
+                        for (String entry : grouped) replayEntry(entry, onUpdate, onRemove);
+                    }
+                    grouped = null;
+                } else if (grouped != null) {
+                    grouped.add(line);
+                } else {
+                    replayEntry(line, onUpdate, onRemove);
+                }
+            }
+            // a group still open here was torn by a crash and is not applied
+        } catch (IOException ignored) {
+            // nothing to replay if the journal is missing/unreadable
+        }
+    }
+
+    // applies one journal line
+    private static void replayEntry(String line, Consumer<Account> onUpdate, Consumer<String> onRemove) {
+        if (line.startsWith("U ") && line.length() == 42) {
+            Account acc = FileAccountsRepository.parseRecord(line.substring(2, 39));
+            if (acc == null) return;
+            acc.setPlan(line.substring(40, 42));
+            onUpdate.accept(acc);
+        } else if (line.startsWith("R ") && line.length() == 7) {
+            onRemove.accept(FixedFmt.acct5(line.substring(2, 7)));
+        }
+        // anything else is a torn write from a crash and is skipped
+    }
+
+    /**
+     * Starts a group of entries that is replayed completely or not at all;
+     * groups may be nested, and only the outermost commit() writes them
+     */
+    public synchronized void begin() {
+        if (groupDepth++ == 0) group = new StringBuilder();
+    }
+
+    /**
+     * Writes the entries recorded since the matching begin() as one group
+     */
+    public synchronized void commit() {
+        if (groupDepth == 0 || --groupDepth > 0) return;
+        String lines = group.toString();
+        group = null;
+        if (!lines.isEmpty()) write("B\n" + lines + "C\n");
+    }
+
+    /**
+     * Discards all journal entries; called once the accounts file has been
+     * saved and the entries are no longer needed for recovery
+     */
+    public synchronized void truncate() {
+        try {
+            if (channel == null) openChannel();
+            channel.truncate(0);
+            channel.force(false);
+            unsynced = false;
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Truncates the journal only if nothing was appended since entryCount()
+     * returned the given value; used when a snapshot taken at that point
+     * has been saved in the background
+     * @param expectedEntries Entry count observed when the snapshot was taken
+     */
+    public synchronized void truncateIfUnchanged(long expectedEntries) {
+        if (entries == expectedEntries) truncate();
+    }
+
+    /**
+     * @return the number of entries appended since this journal was constructed
+     */
+    public synchronized long entryCount() { return entries; }
+
+    /**
+     * Forces any appended entries that are not yet durable to disk
+     */
+    public void sync() {
+        if (!unsynced) return;
+        try {
+            FileChannel ch;
+            synchronized (this) {
+                ch = channel;
+                unsynced = false;
+            }
+            if (ch != null) ch.force(false);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Forces outstanding entries to disk and releases the journal file
+     */
+    public synchronized void close() {
+        if (committer != null) committer.shutdownNow();
+        committer = null;
+        sync();
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    // appends one journal line, or adds it to the open group
+    private synchronized void append(String line) {
+        entries++;
+        if (group != null) {
+            group.append(line).append('\n');
+        } else {
+            write(line + "\n");
+        }
+    }
+
+    // writes journal lines and either forces them or leaves them to the next group commit
+    private void write(String lines) {
+        try {
+            if (channel == null) openChannel();
+            ByteBuffer bytes = ByteBuffer.wrap(lines.getBytes(charset));
+            while (bytes.hasRemaining()) channel.write(bytes);
+
+            if (groupCommitMillis <= 0) {
+                channel.force(false);
+            } else {
+                unsynced = true;
+            }
+        } catch (IOException ignored) {
+            // journaling is best effort; the accounts file is still saved normally
+        }
+    }
+
+    // true if the journal file is empty or its last line is complete
+    private boolean endsWithNewline() throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(journalFilePath), StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size == 0) return true;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            in.read(last, size - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(Paths.get(journalFilePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        // end a line torn by a crash, so it stays a bad line of its own
+        if (!endsWithNewline()) channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+
+        if (groupCommitMillis > 0 && committer == null) {
+            committer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "accounts-journal-commit");
+                t.setDaemon(true);
+                return t;
+            });
+            committer.scheduleWithFixedDelay(this::sync, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -45,6 +45,46 @@ public interface AccountsRepository {
      */
     void remove(String accountId);
 
+    /**
+     * Checks whether an account with the specified typed ID exists
+     * @param accountId Account ID, or null for an id outside the 5-digit range
+     * @return true if the account exists, false otherwise
+     */
+    default boolean exists(AccountId accountId) {
+        return accountId != null && exists(accountId.toString());
+    }
+
+    /**
+     * Retrieves an account by its typed ID
+     * @param accountId Account ID, or null for an id outside the 5-digit range
+     * @return the Account associated with the given ID
+     */
+    default Account get(AccountId accountId) {
+        if (accountId == null) throw new IllegalArgumentException("Account does not exist.");
+        return get(accountId.toString());
+    }
+
+    /**
+     * Removes an account from the repository using its typed ID.
+     * @param accountId Account ID, or null for an id outside the 5-digit range
+     */
+    default void remove(AccountId accountId) {
+        if (accountId != null) remove(accountId.toString());
+    }
+
+    /**
+     * Starts a group of changes that a journaling repository recovers after a
+     * crash either completely or not at all; groups may be nested
+     */
+    default void beginChanges() {
+    }
+
+    /**
+     * Ends the group of changes started by the matching beginChanges()
+     */
+    default void commitChanges() {
+    }
+
     /**
      * Generates the next available unique account ID.
      * @return a new 5-digit account ID as a String
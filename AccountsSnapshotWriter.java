@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountsSnapshotWriter.java
+ - Writes point-in-time snapshots of the accounts file on a background thread.
+ - The writer keeps its own formatted record of every account. A snapshot
+   only carries the records that changed since the previous one, so the
+   caller's work is proportional to the changes; merging them and writing
+   the whole file happen on the writer thread.
+ - A snapshot can ask the writer to rebuild its records from the accounts
+   file first, which is how the first snapshot after a load is taken
+   without formatting every account on the caller's thread.
+ - Each snapshot is written to a temporary file, forced to disk and
+   atomically renamed over the accounts file, so readers never see a
+   partially written file.
+ - If several snapshots are submitted while a write is in progress, their
+   changes are merged and written once.
+ - An optional callback runs once for every submitted snapshot when the
+   writer is done with it, whether it was written, superseded or failed.
+ */
+
+public class AccountsSnapshotWriter {
+    private final Path target;
+    private final Path temp;
+    private final ThreadPoolExecutor executor;
+    private final Runnable onDone; // run after each submitted snapshot is handled, may be null
+    private Snapshot pending;      // changes not yet taken by the writer thread, guarded by this
+    private Future<?> lastWrite;
+
+    // formatted record of every account keyed by id; only touched on the writer thread
+    private final TreeMap<String, String> records = new TreeMap<>();
+
+    // changes since the previous snapshot plus the action to run once they are on disk
+    private static final class Snapshot {
+        boolean rebase;                                    // reread the accounts file before applying changes
+        final Map<String, String> changes = new HashMap<>(); // id to formatted record, null if removed
+        Runnable onWritten;
+    }
+
+    /**
+     * Constructs a snapshot writer for the given accounts file
+     * @param accountsFilePath Path of the accounts file replaced by each snapshot
+     */
+    public AccountsSnapshotWriter(String accountsFilePath) {
+        this(accountsFilePath, null);
+    }
+
+    /**
+     * Constructs a snapshot writer for the given accounts file
+     * @param accountsFilePath Path of the accounts file replaced by each snapshot
+     * @param onDone           Run on the writer thread once for every submitted snapshot
+     *                         after it was written, superseded by a newer one or failed
+     */
+    public AccountsSnapshotWriter(String accountsFilePath, Runnable onDone) {
+        this.target = Paths.get(accountsFilePath);
+        this.onDone = onDone;
+        this.temp = Paths.get(accountsFilePath + ".tmp");
+
+        // a single non-daemon writer that exits when idle, so the JVM
+        // waits for an in-flight snapshot but not for an idle writer
+        this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "accounts-snapshot-writer");
+            t.setDaemon(false);
+            return t;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a snapshot to be written in the background
+     * @param changes   Formatted 37-character record of each account changed since the
+     *                  previous snapshot, null for removed accounts; the writer takes ownership
+     * @param rebase    true to first rebuild the records from the accounts file, which must
+     *                  then hold every account not in changes
+     * @param onWritten Run on the writer thread once the snapshot has replaced the accounts file
+     */
+    public synchronized void submit(Map<String, String> changes, boolean rebase, Runnable onWritten) {
+        if (pending == null) pending = new Snapshot();
+        if (rebase) {
+            // the file already holds whatever earlier snapshots described
+            pending.rebase = true;
+            pending.changes.clear();
+        }
+        pending.changes.putAll(changes);
+        pending.onWritten = onWritten;
+
+        lastWrite = executor.submit(() -> {
+            try {
+                writePending();
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
+    }
+
+    /**
+     * Blocks until every snapshot submitted so far has been written
+     */
+    public void await() {
+        Future<?> f;
+        synchronized (this) {
+            f = lastWrite;
+        }
+        if (f == null) return;
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+    }
+
+    // applies and writes the pending changes, if an earlier task has not already done so
+    private void writePending() {
+        Snapshot snapshot;
+        synchronized (this) {
+            snapshot = pending;
+            pending = null;
+        }
+        if (snapshot == null) return;
+
+        if (snapshot.rebase) readTarget();
+        for (Map.Entry<String, String> e : snapshot.changes.entrySet()) {
+            if (e.getValue() == null) records.remove(e.getKey());
+            else records.put(e.getKey(), e.getValue());
+        }
+
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+            for (String record : records.values()) {
+                writer.write(record);
+                writer.newLine();
+            }
+            writer.write(FileAccountsRepository.formatRecord(FileAccountsRepository.END_OF_FILE));
+            writer.newLine();
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            return; // the previous accounts file is left untouched
+        }
+
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        if (snapshot.onWritten != null) snapshot.onWritten.run();
+    }
+
+    // rebuilds the records from the accounts file the way FileAccountsRepository loads it
+    private void readTarget() {
+        records.clear();
+        try (BufferedReader reader = new BufferedReader(new FileReader(target.toFile()))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = FileAccountsRepository.parseRecord(line, decoder);
+                if (acc == null) continue;
+                if (acc == FileAccountsRepository.END_OF_FILE) break;
+                records.put(acc.getId(), FileAccountsRepository.formatRecord(acc));
+            }
+        } catch (IOException ignored) {
+            // a missing file holds no accounts
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * ArrayAccountsRepository.java
+ - Implements account persistence using the fixed-width text file format,
+   keeping accounts in a dense array indexed by their numeric 5-digit ID.
+ - Account ids always fit in 00000-99999, so a lookup is one array access
+   with no hashing or id re-formatting, and save() writes accounts in id
+   order by walking the array instead of sorting the keys.
+ */
+
+public class ArrayAccountsRepository implements AccountsRepository {
+    // account ids are 5 digits
+    private static final int MAX_ACCOUNTS = 100000;
+
+    private final String accountsFilePath;
+    private final Account[] accounts = new Account[MAX_ACCOUNTS];
+    private int highestId = 0; // upper bound on the highest occupied index
+    private final AccountIdAllocator ids = new AccountIdAllocator(); // rebuilt by add() during load()
+
+    public ArrayAccountsRepository(String filename) {
+        this.accountsFilePath = filename;
+    }
+
+    // loads account data from persistent storage
+    @Override
+    public void load() {
+        Arrays.fill(accounts, null);
+        highestId = 0;
+        ids.reset();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(accountsFilePath))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = FileAccountsRepository.parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if ("END_OF_FILE".equals(acc.getName())) break;
+                add(acc);
+            }
+        } catch (IOException ignored) {
+            // start empty if file missing/unreadable
+        }
+    }
+
+    // writes account data to persistent storage, in id order
+    @Override
+    public void save() {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(accountsFilePath))) {
+            for (int n = 0; n <= highestId; n++) {
+                if (accounts[n] != null) writer.println(FileAccountsRepository.formatRecord(accounts[n]));
+            }
+
+            // END_OF_FILE record
+            writer.println(FileAccountsRepository.formatRecord(
+                    Account.ofCents("00000", "END_OF_FILE", 'A', 0, "SP")));
+        } catch (IOException ignored) {
+        }
+    }
+
+    // determines whether an account exists
+    @Override
+    public boolean exists(String accountId) {
+        int n = indexOf(accountId);
+        return n >= 0 && accounts[n] != null;
+    }
+
+    // retrieves an account by identifier
+    @Override
+    public Account get(String accountId) {
+        int n = indexOf(accountId);
+        Account a = n >= 0 ? accounts[n] : null;
+        if (a == null) throw new IllegalArgumentException("Account does not exist.");
+        return a;
+    }
+
+    // determines whether an account exists, indexing directly by the typed id
+    @Override
+    public boolean exists(AccountId accountId) {
+        return accountId != null && accounts[accountId.intValue()] != null;
+    }
+
+    // retrieves an account by typed identifier
+    @Override
+    public Account get(AccountId accountId) {
+        Account a = accountId != null ? accounts[accountId.intValue()] : null;
+        if (a == null) throw new IllegalArgumentException("Account does not exist.");
+        return a;
+    }
+
+    // adds a new account to storage
+    @Override
+    public void add(Account account) {
+        int n = indexOf(account.getId());
+        if (n < 0) throw new IllegalArgumentException("Invalid account number.");
+        accounts[n] = account;
+        highestId = Math.max(highestId, n);
+        ids.markUsed(n);
+    }
+
+    // removes an account from storage
+    @Override
+    public void remove(String accountId) {
+        int n = indexOf(accountId);
+        if (n >= 0) removeAt(n);
+    }
+
+    // removes an account by typed identifier
+    @Override
+    public void remove(AccountId accountId) {
+        if (accountId != null) removeAt(accountId.intValue());
+    }
+
+    private void removeAt(int n) {
+        if (accounts[n] != null) ids.release(n);
+        accounts[n] = null;
+    }
+
+    // reserves the lowest free account identifier; ids of removed accounts are reused
+    @Override
+    public String nextAccountId() {
+        return FixedFmt.acct5(ids.allocate());
+    }
+
+    // numeric index of an account id, accepting the same blank-padded digits as
+    // FixedFmt.acct5; -1 if the id is not a number in the 5-digit range
+    private static int indexOf(String accountId) {
+        if (accountId == null) return -1;
+        int n = 0;
+        int start = 0;
+        int end = accountId.length();
+        while (start < end && accountId.charAt(start) <= ' ') start++;
+        while (end > start && accountId.charAt(end - 1) <= ' ') end--;
+        if (start == end) return -1;
+        for (int i = start; i < end; i++) {
+            char c = accountId.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+            if (n >= MAX_ACCOUNTS) return -1;
+        }
+        return n;
+    }
+}
@@ -234,7 +234,7 @@ if (name == null) return;
                 return;
             }
     
-            service.withdrawal(session, nameForAdmin, acct, amt);
+            service.withdrawal(session, nameForAdmin, AccountId.parse(acct), FixedFmt.toCents(amt));
             System.out.println("Withdrawal recorded.");
             System.out.println();
     
@@ -262,7 +262,7 @@ if (name == null) return;
             Double amt = readDouble("Amount to transfer: ");
             if (amt == null) { System.out.println("Bad amount."); return; }
 
-            service.transfer(session, nameForAdmin, from, to, amt);
+            service.transfer(session, nameForAdmin, AccountId.parse(from), AccountId.parse(to), FixedFmt.toCents(amt));
             System.out.println("Transfer recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
@@ -287,7 +287,7 @@ if (name == null) return;
             Double amt = readDouble("Amount to pay: ");
             if (amt == null) { System.out.println("Bad amount."); return; }
 
-            service.paybill(session, nameForAdmin, acct, company, amt);
+            service.paybill(session, nameForAdmin, AccountId.parse(acct), company, FixedFmt.toCents(amt));
             System.out.println("Paybill recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
@@ -327,7 +327,7 @@ if (name == null) return;
                 return;
             }
     
-            service.deposit(session, nameForAdmin, acct, amt);
+            service.deposit(session, nameForAdmin, AccountId.parse(acct), FixedFmt.toCents(amt));
             System.out.println("Deposit recorded (not available until logout).");
             System.out.println();
     
@@ -365,7 +365,7 @@ System.out.println("Amount to deposit: " + amtStr);
             return;
         }
 
-            service.create(session, name, amt);
+            service.create(session, name, FixedFmt.toCents(amt));
             System.out.println("Create recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
@@ -382,7 +382,7 @@ System.out.println("Amount to deposit: " + amtStr);
             System.out.print("Account number: ");
             String acct = safeLine();
 
-            service.delete(session, name, acct);
+            service.delete(session, name, AccountId.parse(acct));
             System.out.println("Delete recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
@@ -399,7 +399,7 @@ System.out.println("Amount to deposit: " + amtStr);
             System.out.print("Account number: ");
             String acct = safeLine();
 
-            service.disable(session, name, acct);
+            service.disable(session, name, AccountId.parse(acct));
             System.out.println("Disable recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
@@ -416,7 +416,7 @@ System.out.println("Amount to deposit: " + amtStr);
             System.out.print("Account number: ");
             String acct = safeLine();
 
-            service.changeplan(session, name, acct);
+            service.changeplan(session, name, AccountId.parse(acct));
             System.out.println("Changeplan recorded.");
         } catch (IllegalArgumentException ex) {
             System.out.println(ex.getMessage());
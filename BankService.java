@@ -16,8 +16,13 @@ public class BankService {
     private final TransactionLogger logger; // logger responsible for recording and writing transaction records
 
     // deposits are recorded during the session, but not applied to account balance until logout
-    // Key: 5-digit account ID, Value: total pending deposit amount.
-    private final Map<String, Double> pendingDeposits = new HashMap<>();
+    // Key: account ID, Value: total pending deposit amount in cents.
+    private final Map<AccountId, PendingDeposit> pendingDeposits = new HashMap<>();
+
+    // mutable per-account deposit total, updated in place so no boxed value is allocated per deposit
+    private static final class PendingDeposit {
+        long cents;
+    }
 
     /**
      * Constructs the banking service layer
@@ -32,13 +37,13 @@ public class BankService {
     /**
      * Validate for STANDARD mode: holder name must match account owner and status active
      * ensures that the account exists, is active, and belongs to the logged in user
-     * @param holderName Account holder name from the session
+     * @param holderName Account holder name from the session, or its folded key
      * @param accountId  Target account identifier
     */
-    public void validateStandardAccount(String holderName, String accountId) {
-        Account acc = repo.get(FixedFmt.acct5(accountId));
+    public void validateStandardAccount(String holderName, AccountId accountId) {
+        Account acc = repo.get(accountId);
         if (acc.isDisabled()) throw new IllegalArgumentException("Account is disabled.");
-        if (!acc.getName().equalsIgnoreCase(holderName.trim())) {
+        if (!HolderNames.sameHolder(acc.getName(), holderName)) {
             throw new IllegalArgumentException("Account does not belong to current user.");
         }
     }
@@ -50,8 +55,8 @@ public class BankService {
      * Used primarily for admin operations
      * @param accountId Target account identifier
      */
-    public void validateExistingActive(String accountId) {
-        Account acc = repo.get(FixedFmt.acct5(accountId));
+    public void validateExistingActive(AccountId accountId) {
+        Account acc = repo.get(accountId);
         if (acc.isDisabled()) throw new IllegalArgumentException("Account is disabled.");
     }
 
@@ -60,28 +65,29 @@ public class BankService {
      * @param session            Current user session
      * @param holderNameIfAdmin  Account holder name provided by admin users
      * @param accountId          Account identifier
-     * @param amount             Amount to withdraw
+     * @param amount             Amount to withdraw, in cents
      */
-    public void withdrawal(Session session, String holderNameIfAdmin, String accountId, double amount) {
-        if (amount <= 0) throw new IllegalArgumentException("Amount must be non-negative and greater than 0.");        String acct5 = FixedFmt.acct5(accountId);
+    public void withdrawal(Session session, String holderNameIfAdmin, AccountId accountId, long amount) {
+        if (amount <= 0) throw new IllegalArgumentException("Amount must be non-negative and greater than 0.");
 
         if (session.isAdmin()) {
-            validateExistingActive(acct5);
+            validateExistingActive(accountId);
         } else {
-            validateStandardAccount(session.getHolderName(), acct5);
-            if (pendingDeposits.containsKey(acct5) && pendingDeposits.get(acct5) > 0) {
+            validateStandardAccount(session.getHolderKey(), accountId);
+            PendingDeposit pending = pendingDeposits.get(accountId);
+            if (pending != null && pending.cents > 0) {
                 throw new IllegalArgumentException("Transaction rejected. Deposited funds are not available in this session.");
             }
         }
 
-        Account acc = repo.get(acct5);
-        acc.debit(amount);
+        Account acc = repo.get(accountId);
+        acc.debitCents(amount);
 
-        if (!session.isAdmin()) session.addWithdraw(amount);
+        if (!session.isAdmin()) session.addWithdrawCents(amount);
 
         // Log: 01 withdrawal
         String nameForLog = session.isAdmin() ? holderNameIfAdmin : session.getHolderName();
-        logger.add(new TransactionRecord("01", nameForLog, acct5, amount, ""));
+        logger.add(new TransactionRecord("01", nameForLog, accountId.toString(), amount, ""));
 
 
     }
@@ -92,38 +98,41 @@ public class BankService {
      * @param holderNameIfAdmin  Account holder name provided by admin users
      * @param fromAccountId      Source account identifier
      * @param toAccountId        Destination account identifier
-     * @param amount             Amount to transfer
+     * @param amount             Amount to transfer, in cents
      */
-    public void transfer(Session session, String holderNameIfAdmin, String fromId, String toId, double amount) {
+    public void transfer(Session session, String holderNameIfAdmin, AccountId fromId, AccountId toId, long amount) {
         if (amount < 0) throw new IllegalArgumentException("Amount must be non-negative.");
 
-        String from5 = FixedFmt.acct5(fromId);
-        String to5 = FixedFmt.acct5(toId);
-
-        if (!repo.exists(to5)) throw new IllegalArgumentException("Destination account does not exist.");
+        if (!repo.exists(toId)) throw new IllegalArgumentException("Destination account does not exist.");
 
         if (session.isAdmin()) {
-            validateExistingActive(from5);
-            validateExistingActive(to5);
+            validateExistingActive(fromId);
+            validateExistingActive(toId);
         } else {
-            validateStandardAccount(session.getHolderName(), from5);
-            validateExistingActive(to5);
-            if (session.getTotalTransfer() + amount > 1000.0) {
+            validateStandardAccount(session.getHolderKey(), fromId);
+            validateExistingActive(toId);
+            if (session.getTotalTransferCents() + amount > 100000) {
                 throw new IllegalArgumentException("Standard session transfer limit is $1000.00.");
             }
         }
 
-        Account from = repo.get(from5);
-        Account to = repo.get(to5);
+        Account from = repo.get(fromId);
+        Account to = repo.get(toId);
 
-        from.debit(amount);
-        to.credit(amount);
+        // both balances are recovered after a crash, or neither
+        repo.beginChanges();
+        try {
+            from.debitCents(amount);
+            to.creditCents(amount);
+        } finally {
+            repo.commitChanges();
+        }
 
-        if (!session.isAdmin()) session.addTransfer(amount);
+        if (!session.isAdmin()) session.addTransferCents(amount);
 
         // Log: 02 transfer (MM unused in format, so blank)
         String nameForLog = session.isAdmin() ? holderNameIfAdmin : session.getHolderName();
-        logger.add(new TransactionRecord("02", nameForLog, from5, amount, ""));
+        logger.add(new TransactionRecord("02", nameForLog, fromId.toString(), amount, ""));
     }
 
     /**
@@ -132,12 +141,11 @@ public class BankService {
      * @param holderNameIfAdmin  Account holder name provided by admin users
      * @param accountId          Account identifier
      * @param companyCode        Billing company code (EC, CQ, FI)
-     * @param amount             Amount to pay
+     * @param amount             Amount to pay, in cents
      */
-    public void paybill(Session session, String holderNameIfAdmin, String accountId, String companyCode, double amount) {
+    public void paybill(Session session, String holderNameIfAdmin, AccountId accountId, String companyCode, long amount) {
         if (amount < 0) throw new IllegalArgumentException("Amount must be non-negative.");
 
-        String acct5 = FixedFmt.acct5(accountId);
         String cc = companyCode == null ? "" : companyCode.trim().toUpperCase();
 
         if (!(cc.equals("EC") || cc.equals("CQ") || cc.equals("FI"))) {
@@ -145,22 +153,22 @@ public class BankService {
         }
 
         if (session.isAdmin()) {
-            validateExistingActive(acct5);
+            validateExistingActive(accountId);
         } else {
-            validateStandardAccount(session.getHolderName(), acct5);
-            if (session.getTotalPaybill() + amount > 2000.0) {
+            validateStandardAccount(session.getHolderKey(), accountId);
+            if (session.getTotalPaybillCents() + amount > 200000) {
                 throw new IllegalArgumentException("Standard session paybill limit is $2000.00.");
             }
         }
 
-        Account acc = repo.get(acct5);
-        acc.debit(amount);
+        Account acc = repo.get(accountId);
+        acc.debitCents(amount);
 
-        if (!session.isAdmin()) session.addPaybill(amount);
+        if (!session.isAdmin()) session.addPaybillCents(amount);
 
         // Log: 03 paybill, MM holds company code
         String nameForLog = session.isAdmin() ? holderNameIfAdmin : session.getHolderName();
-        logger.add(new TransactionRecord("03", nameForLog, acct5, amount, cc));
+        logger.add(new TransactionRecord("03", nameForLog, accountId.toString(), amount, cc));
     }
 
     /**
@@ -169,24 +177,23 @@ public class BankService {
      * @param session            Current user session
      * @param holderNameIfAdmin  Account holder name provided by admin users
      * @param accountId          Account identifier
-     * @param amount             Amount to deposit
+     * @param amount             Amount to deposit, in cents
      */
-    public void deposit(Session session, String holderNameIfAdmin, String accountId, double amount) {
+    public void deposit(Session session, String holderNameIfAdmin, AccountId accountId, long amount) {
         if (amount <= 0) throw new IllegalArgumentException("Amount must be non-negative and greater than 0.");
-        String acct5 = FixedFmt.acct5(accountId);
 
         if (session.isAdmin()) {
-            validateExistingActive(acct5);
+            validateExistingActive(accountId);
         } else {
-            validateStandardAccount(session.getHolderName(), acct5);
+            validateStandardAccount(session.getHolderKey(), accountId);
         }
 
         // Not available until logout -> pending
-        pendingDeposits.put(acct5, pendingDeposits.getOrDefault(acct5, 0.0) + amount);
+        pendingDeposits.computeIfAbsent(accountId, k -> new PendingDeposit()).cents += amount;
 
         // Log: 04 deposit
         String nameForLog = session.isAdmin() ? holderNameIfAdmin : session.getHolderName();
-        logger.add(new TransactionRecord("04", nameForLog, acct5, amount, ""));
+        logger.add(new TransactionRecord("04", nameForLog, accountId.toString(), amount, ""));
     }
 
     // Privileged: create (05)
@@ -194,17 +201,17 @@ public class BankService {
      * Creates a new account (admin only)
      * @param session        Current user session
      * @param holderName     Account holder name
-     * @param initialBalance Initial account balance
+     * @param initialBalance Initial account balance, in cents
      */
-    public void create(Session session, String holderName, double initialBalance) {
+    public void create(Session session, String holderName, long initialBalance) {
         if (!session.isAdmin()) throw new IllegalArgumentException("Admin only.");
         if (holderName == null) holderName = "";
         holderName = holderName.trim();
         if (holderName.length() > 20) throw new IllegalArgumentException("Name max 20 characters.");
-        if (initialBalance < 0 || initialBalance > 99999.99) throw new IllegalArgumentException("Invalid initial balance.");
+        if (initialBalance < 0 || initialBalance > 9999999) throw new IllegalArgumentException("Invalid initial balance.");
 
         String id = repo.nextAccountId();
-        Account acc = new Account(id, holderName, 'A', initialBalance, "SP");
+        Account acc = Account.ofCents(id, holderName, 'A', initialBalance, "SP");
         repo.add(acc);
 
         logger.add(new TransactionRecord("05", holderName, id, initialBalance, ""));
@@ -217,15 +224,14 @@ public class BankService {
      * @param holderName Account holder name
      * @param accountId  Account identifier
      */
-    public void delete(Session session, String holderName, String accountId) {
+    public void delete(Session session, String holderName, AccountId accountId) {
         if (!session.isAdmin()) throw new IllegalArgumentException("Admin only.");
-        String acct5 = FixedFmt.acct5(accountId);
-        Account acc = repo.get(acct5);
+        Account acc = repo.get(accountId);
         if (!acc.getName().equalsIgnoreCase(holderName.trim())) {
             throw new IllegalArgumentException("Holder name does not match account.");
         }
-        repo.remove(acct5);
-        logger.add(new TransactionRecord("06", holderName, acct5, 0.0, ""));
+        repo.remove(accountId);
+        logger.add(new TransactionRecord("06", holderName, accountId.toString(), 0, ""));
     }
 
     // Privileged: disable (07)
@@ -235,15 +241,14 @@ public class BankService {
      * @param holderName Account holder name
      * @param accountId  Account identifier
      */
-    public void disable(Session session, String holderName, String accountId) {
+    public void disable(Session session, String holderName, AccountId accountId) {
         if (!session.isAdmin()) throw new IllegalArgumentException("Admin only.");
-        String acct5 = FixedFmt.acct5(accountId);
-        Account acc = repo.get(acct5);
+        Account acc = repo.get(accountId);
         if (!acc.getName().equalsIgnoreCase(holderName.trim())) {
             throw new IllegalArgumentException("Holder name does not match account.");
         }
         acc.setStatus('D');
-        logger.add(new TransactionRecord("07", holderName, acct5, 0.0, ""));
+        logger.add(new TransactionRecord("07", holderName, accountId.toString(), 0, ""));
     }
 
     // Privileged: changeplan (08) -> set SP to NP
@@ -253,23 +258,27 @@ public class BankService {
      * @param holderName Account holder name
      * @param accountId  Account identifier
      */
-    public void changeplan(Session session, String holderName, String accountId) {
+    public void changeplan(Session session, String holderName, AccountId accountId) {
         if (!session.isAdmin()) throw new IllegalArgumentException("Admin only.");
-        String acct5 = FixedFmt.acct5(accountId);
-        Account acc = repo.get(acct5);
+        Account acc = repo.get(accountId);
         if (!acc.getName().equalsIgnoreCase(holderName.trim())) {
             throw new IllegalArgumentException("Holder name does not match account.");
         }
         acc.setPlan("NP");
-        logger.add(new TransactionRecord("08", holderName, acct5, 0.0, "NP"));
+        logger.add(new TransactionRecord("08", holderName, accountId.toString(), 0, "NP"));
     }
 
     // Called at logout: apply pending deposits to balances
     public void applyPendingDeposits() {
-        for (Map.Entry<String, Double> e : pendingDeposits.entrySet()) {
-            if (repo.exists(e.getKey())) {
-                repo.get(e.getKey()).credit(e.getValue());
+        repo.beginChanges();
+        try {
+            for (Map.Entry<AccountId, PendingDeposit> e : pendingDeposits.entrySet()) {
+                if (repo.exists(e.getKey())) {
+                    repo.get(e.getKey()).creditCents(e.getValue().cents);
+                }
             }
+        } finally {
+            repo.commitChanges();
         }
         pendingDeposits.clear();
     }
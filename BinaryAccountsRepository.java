@@ -0,0 +1,217 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * BinaryAccountsRepository.java
+ - Implements account persistence using a compact binary file format.
+ - Binary alternative to FileAccountsRepository: balances are stored as
+   whole cents and holder names are stored once in a name table, so
+   loading needs no text parsing and the file is about half the size.
+ - File layout (big-endian):
+     header  : int magic "BACC", short version, int nameCount, int recordCount
+     names   : nameCount x (unsigned byte length, UTF-8 bytes)
+     records : recordCount x 17 bytes
+               (int id, long balance in cents, byte flags, int name index)
+   flags bit 0 is set for disabled accounts and bit 1 for the NP plan.
+ - Accounts are stored internally in a map keyed by their 5-digit account ID.
+ */
+
+public class BinaryAccountsRepository implements AccountsRepository {
+    private static final int MAGIC = 0x42414343; // "BACC"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 4;
+    private static final int RECORD_BYTES = 4 + 8 + 1 + 4;
+
+    private static final int FLAG_DISABLED = 0x01;
+    private static final int FLAG_NP_PLAN = 0x02;
+
+    private final String accountsFilePath;
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final AccountIdAllocator ids = new AccountIdAllocator(); // rebuilt on load()
+
+    public BinaryAccountsRepository(String filename) {
+        this.accountsFilePath = filename;
+    }
+
+    // loads account data from persistent storage
+    @Override
+    public void load() {
+        accounts.clear();
+        ids.reset();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(accountsFilePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) return;
+
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) { }
+            buf.flip();
+
+            if (buf.getInt() != MAGIC || buf.getShort() != VERSION) return; // not an accounts file
+            int nameCount = buf.getInt();
+            int recordCount = buf.getInt();
+
+            String[] names = new String[nameCount];
+            for (int i = 0; i < nameCount; i++) {
+                int len = buf.get() & 0xFF;
+                names[i] = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+                buf.position(buf.position() + len);
+            }
+
+            // parsed aside, so a truncated file leaves the repository empty rather than half loaded
+            Map<String, Account> loaded = new HashMap<>();
+            for (int i = 0; i < recordCount; i++) {
+                int id = buf.getInt();
+                long cents = buf.getLong();
+                int flags = buf.get();
+                int nameRef = buf.getInt();
+
+                String id5 = id5(id);
+                char status = (flags & FLAG_DISABLED) != 0 ? 'D' : 'A';
+                String plan = (flags & FLAG_NP_PLAN) != 0 ? "NP" : "SP";
+                loaded.put(id5, Account.ofCents(id5, names[nameRef], status, cents, plan));
+                ids.markUsed(id);
+            }
+
+            accounts.putAll(loaded);
+        } catch (IOException | RuntimeException ignored) {
+            // start empty if file missing/unreadable/truncated
+            ids.reset();
+        }
+    }
+
+    // writes account data to persistent storage
+    @Override
+    public void save() {
+        List<Account> sorted = accountsInIdOrder();
+
+        // each distinct holder name is stored once
+        Map<String, Integer> nameRefs = new LinkedHashMap<>();
+        for (Account acc : sorted) {
+            nameRefs.putIfAbsent(nameOf(acc), nameRefs.size());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(accountsFilePath)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(nameRefs.size());
+            out.writeInt(sorted.size());
+
+            for (String name : nameRefs.keySet()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(bytes.length);
+                out.write(bytes);
+            }
+
+            for (Account acc : sorted) {
+                int flags = 0;
+                if (acc.isDisabled()) flags |= FLAG_DISABLED;
+                if ("NP".equals(acc.getPlan())) flags |= FLAG_NP_PLAN;
+
+                out.writeInt(Integer.parseInt(FixedFmt.acct5(acc.getId())));
+                out.writeLong(acc.getBalanceCents());
+                out.writeByte(flags);
+                out.writeInt(nameRefs.get(nameOf(acc)));
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return all accounts ordered by account ID
+     */
+    List<Account> accountsInIdOrder() {
+        List<String> ids = new ArrayList<>(accounts.keySet());
+        Collections.sort(ids);
+
+        List<Account> sorted = new ArrayList<>(ids.size());
+        for (String id : ids) sorted.add(accounts.get(id));
+        return sorted;
+    }
+
+    // zero-pads a numeric id to 5 digits without going through String.format
+    private static String id5(int id) {
+        char[] digits = new char[5];
+        for (int i = 4; i >= 0; i--) {
+            digits[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(digits);
+    }
+
+    // holder name as stored in the name table: trimmed and at most 20 characters, like alpha20
+    private static String nameOf(Account acc) {
+        return FixedFmt.alpha20(acc.getName()).trim();
+    }
+
+    // determines whether an account exists
+    @Override
+    public boolean exists(String accountId) {
+        return accounts.containsKey(FixedFmt.acct5(accountId));
+    }
+
+    // retrieves an account by identifier
+    @Override
+    public Account get(String accountId) {
+        String id = FixedFmt.acct5(accountId);
+        Account a = accounts.get(id);
+        if (a == null) throw new IllegalArgumentException("Account does not exist.");
+        return a;
+    }
+
+    // determines whether an account exists, without re-normalizing the id
+    @Override
+    public boolean exists(AccountId accountId) {
+        return accountId != null && accounts.containsKey(accountId.toString());
+    }
+
+    // retrieves an account by typed identifier
+    @Override
+    public Account get(AccountId accountId) {
+        Account a = accountId == null ? null : accounts.get(accountId.toString());
+        if (a == null) throw new IllegalArgumentException("Account does not exist.");
+        return a;
+    }
+
+    // adds a new account to storage
+    @Override
+    public void add(Account account) {
+        String id = FixedFmt.acct5(account.getId());
+        accounts.put(id, account);
+        AccountId n = AccountId.parse(id);
+        if (n != null) ids.markUsed(n.intValue());
+    }
+
+    // removes an account from storage
+    @Override
+    public void remove(String accountId) {
+        unindex(accounts.remove(FixedFmt.acct5(accountId)));
+    }
+
+    // removes an account by typed identifier
+    @Override
+    public void remove(AccountId accountId) {
+        if (accountId != null) unindex(accounts.remove(accountId.toString()));
+    }
+
+    private void unindex(Account removed) {
+        if (removed == null) return;
+        AccountId n = AccountId.parse(removed.getId());
+        if (n != null) ids.release(n.intValue());
+    }
+
+    // reserves the lowest free account identifier; ids of removed accounts are reused
+    @Override
+    public String nextAccountId() {
+        return FixedFmt.acct5(ids.allocate());
+    }
+}
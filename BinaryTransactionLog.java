@@ -0,0 +1,442 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BinaryTransactionLog.java
+ - Compact binary form of the daily transactions file, with a lossless
+   converter to and from the fixed-width 40-character text form.
+ - The file is a stream of entries. A record entry is its code byte (0..99),
+   then the account number, the amount in cents, a misc dictionary byte, a
+   name dictionary reference and the sequence number as a difference from
+   the previous record's. All numbers are variable-length (7 bits per byte),
+   so a typical record takes 9 to 13 bytes instead of 41.
+ - Each distinct 20-character holder name and 2-character misc field is
+   stored once, in a definition entry before its first use, and records
+   refer to it by number. Definitions start over at each reset entry, which
+   a writer puts before its first record each time it opens a file, so a
+   file can be appended to by later sessions.
+ - A text line that does not have the record layout (a code or money field
+   that is not digits, for example) is kept byte for byte in a raw entry,
+   so text converted to binary and back is identical except that lines end
+   with the platform line separator.
+ */
+public class BinaryTransactionLog {
+    static final int NAME_DEFINITION = 0x80; // 20 name bytes; takes the next name number
+    static final int MISC_DEFINITION = 0x81; // 2 misc bytes; takes the next misc number
+    static final int RAW_RECORD = 0x82;      // sequence difference, length byte, the text line
+    static final int RESET = 0x83;           // forget all definitions and the previous sequence
+
+    // bytes one record can take: a reset and the largest entry, a raw one; a
+    // record entry with a name and a misc definition before it is smaller
+    static final int MAX_RECORD_BYTES = 1 + (1 + 10 + 1 + 255);
+
+    private static final int MISC_LIMIT = 256; // misc numbers must fit the misc byte
+    private static final int IO_BUFFER = 64 * 1024;
+
+    /**
+     * Turns 40-byte text records into binary entries, keeping the definitions made so far
+     */
+    public static final class Encoder {
+        private final Map<String, Integer> names = new HashMap<>();
+        private final int[] miscs = new int[MISC_LIMIT]; // the two misc bytes of each misc number
+        private int miscCount = 0;
+        private final byte[] lastName = new byte[20]; // the name used last, to skip the map lookup
+        private int lastNameRef = -1;
+        private long previousSequence = 0;
+        private boolean resetPending = true;
+
+        /**
+         * Starts a new set of definitions; the next entry written is a reset
+         */
+        public void reset() {
+            names.clear();
+            miscCount = 0;
+            lastNameRef = -1;
+            previousSequence = 0;
+            resetPending = true;
+        }
+
+        /**
+         * Encodes one text record, with any definitions it needs
+         * @param line     Text record, without line separator
+         * @param off      Offset of the record in line
+         * @param len      Length of the record; at most 255
+         * @param sequence Sequence number of the record
+         * @param dst      Destination array, with room for MAX_RECORD_BYTES
+         * @param dstOff   Offset in dst
+         * @return the offset just past the encoded entries
+         * @throws IllegalArgumentException if the record is longer than 255 bytes
+         */
+        public int encode(byte[] line, int off, int len, long sequence, byte[] dst, int dstOff) {
+            if (len > 255) throw new IllegalArgumentException("Transaction record is too long.");
+            int p = dstOff;
+            if (resetPending) {
+                dst[p++] = (byte) RESET;
+                resetPending = false;
+            }
+
+            int misc = len == 40 && hasRecordLayout(line, off) ? miscRef(line, off + 38) : -1;
+            if (misc == miscCount) {
+                miscs[miscCount++] = (line[off + 38] & 0xFF) << 8 | (line[off + 39] & 0xFF);
+                dst[p++] = (byte) MISC_DEFINITION;
+                dst[p++] = line[off + 38];
+                dst[p++] = line[off + 39];
+            }
+            long delta = sequence - previousSequence;
+            previousSequence = sequence;
+            if (misc < 0) {
+                dst[p++] = (byte) RAW_RECORD;
+                p = putVarLong(dst, p, zigzag(delta));
+                dst[p++] = (byte) len;
+                System.arraycopy(line, off, dst, p, len);
+                return p + len;
+            }
+
+            int name = nameRef(line, off + 3);
+            if (name < 0) {
+                name = names.size();
+                names.put(key(line, off + 3, 20), name);
+                dst[p++] = (byte) NAME_DEFINITION;
+                System.arraycopy(line, off + 3, dst, p, 20);
+                p += 20;
+            }
+            System.arraycopy(line, off + 3, lastName, 0, 20);
+            lastNameRef = name;
+
+            dst[p++] = (byte) digits(line, off, 2);
+            p = putVarLong(dst, p, digits(line, off + 24, 5));
+            p = putVarLong(dst, p, digits(line, off + 30, 5) * 100 + digits(line, off + 36, 2));
+            dst[p++] = (byte) misc;
+            p = putVarLong(dst, p, name);
+            return putVarLong(dst, p, zigzag(delta));
+        }
+
+        // number of a name, or -1 if it has not been defined yet
+        private int nameRef(byte[] line, int off) {
+            if (lastNameRef >= 0 && Arrays.equals(lastName, 0, 20, line, off, off + 20)) return lastNameRef;
+            Integer ref = names.get(key(line, off, 20));
+            return ref == null ? -1 : ref;
+        }
+
+        // number of a misc field; miscCount if it is new, or -1 if the misc byte is used up
+        private int miscRef(byte[] line, int off) {
+            int pair = (line[off] & 0xFF) << 8 | (line[off + 1] & 0xFF);
+            for (int i = 0; i < miscCount; i++) {
+                if (miscs[i] == pair) return i; // a handful of distinct values in practice
+            }
+            return miscCount < MISC_LIMIT ? miscCount : -1;
+        }
+    }
+
+    /**
+     * Reads the entries of a binary log one record at a time
+     */
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private final byte[] buf = new byte[IO_BUFFER]; // entries are parsed straight from here
+        private int pos = 0, limit = 0;
+        private long bufferOffset = 0; // stream offset of buf[0]
+        private boolean eof = false;
+
+        private final List<byte[]> names = new ArrayList<>();
+        private final List<byte[]> miscs = new ArrayList<>();
+        private long previousSequence = 0;
+
+        // the current record
+        private long sequence;
+        private boolean raw;
+        private int code, account;
+        private long cents;
+        private byte[] name, misc;
+        private int rawOffset, rawLength; // a raw line, in buf
+
+        /**
+         * Constructs a reader
+         * @param in Binary log stream; closed with the reader
+         */
+        public Reader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Moves to the next record
+         * @return true if there is one, false at the end of the stream
+         * @throws IOException if the stream cannot be read or is malformed
+         */
+        public boolean next() throws IOException {
+            while (true) {
+                fill();
+                if (pos == limit) return false;
+                int tag = buf[pos++] & 0xFF;
+                if (tag < 100) {
+                    raw = false;
+                    code = tag;
+                    account = (int) readVarLong();
+                    cents = readVarLong();
+                    misc = lookup(miscs, readByte());
+                    name = lookup(names, (int) readVarLong());
+                    sequence = previousSequence += unzigzag(readVarLong());
+                    return true;
+                }
+                switch (tag) {
+                    case NAME_DEFINITION:
+                        names.add(readBytes(20));
+                        break;
+                    case MISC_DEFINITION:
+                        miscs.add(readBytes(2));
+                        break;
+                    case RAW_RECORD:
+                        raw = true;
+                        sequence = previousSequence += unzigzag(readVarLong());
+                        rawLength = readByte();
+                        rawOffset = pos;
+                        skip(rawLength);
+                        return true;
+                    case RESET:
+                        names.clear();
+                        miscs.clear();
+                        previousSequence = 0;
+                        break;
+                    default:
+                        throw new IOException("Binary transaction log is malformed.");
+                }
+            }
+        }
+
+        /** @return sequence number of the record */
+        public long getSequence() { return sequence; }
+
+        /** @return stream offset just past the record's entry */
+        public long getEndOffset() { return bufferOffset + pos; }
+
+        /** @return true if the record is a text line kept as is; the field getters do not apply */
+        public boolean isRaw() { return raw; }
+
+        /** @return transaction code, 0..99 */
+        public int getCode() { return code; }
+
+        /** @return account number */
+        public int getAccount() { return account; }
+
+        /** @return amount in cents */
+        public long getCents() { return cents; }
+
+        /** @return holder name field, 20 characters with padding */
+        public String getName() { return new String(name, StandardCharsets.ISO_8859_1); }
+
+        /** @return misc field, 2 characters with padding */
+        public String getMisc() { return new String(misc, StandardCharsets.ISO_8859_1); }
+
+        /**
+         * Writes the record in its text form
+         * @param dst Destination array, with room for 255 bytes
+         * @param off Offset in dst
+         * @return the offset just past the text, without line separator
+         */
+        public int toText(byte[] dst, int off) {
+            if (raw) {
+                System.arraycopy(buf, rawOffset, dst, off, rawLength);
+                return off + rawLength;
+            }
+            putDigits(dst, off, code, 2);
+            dst[off + 2] = ' ';
+            System.arraycopy(name, 0, dst, off + 3, 20);
+            dst[off + 23] = ' ';
+            putDigits(dst, off + 24, account, 5);
+            dst[off + 29] = ' ';
+            putDigits(dst, off + 30, cents / 100, 5);
+            dst[off + 35] = '.';
+            putDigits(dst, off + 36, cents % 100, 2);
+            dst[off + 38] = misc[0];
+            dst[off + 39] = misc[1];
+            return off + 40;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        // makes sure the largest entry is in buf, unless the stream ends first
+        private void fill() throws IOException {
+            if (limit - pos >= MAX_RECORD_BYTES || eof) return;
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            bufferOffset += pos;
+            pos = 0;
+            while (limit < buf.length) {
+                int r = in.read(buf, limit, buf.length - limit);
+                if (r < 0) {
+                    eof = true;
+                    return;
+                }
+                limit += r;
+            }
+        }
+
+        private byte[] lookup(List<byte[]> dictionary, int ref) throws IOException {
+            if (ref < 0 || ref >= dictionary.size()) throw new IOException("Binary transaction log is malformed.");
+            return dictionary.get(ref);
+        }
+
+        private int readByte() throws IOException {
+            if (pos == limit) throw new EOFException("Binary transaction log is truncated.");
+            return buf[pos++] & 0xFF;
+        }
+
+        private byte[] readBytes(int len) throws IOException {
+            int from = pos;
+            skip(len);
+            return Arrays.copyOfRange(buf, from, from + len);
+        }
+
+        private void skip(int len) throws IOException {
+            if (limit - pos < len) throw new EOFException("Binary transaction log is truncated.");
+            pos += len;
+        }
+
+        private long readVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) return v;
+            }
+            throw new IOException("Binary transaction log is malformed.");
+        }
+    }
+
+    /**
+     * Converts a text transactions file to the binary form
+     * @param text          Text file, one record per line
+     * @param binary        Binary file to write; replaced if it exists
+     * @param firstSequence Sequence number given to the first line
+     * @return number of records converted
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if a line is longer than 255 bytes
+     */
+    public static long textToBinary(Path text, Path binary, long firstSequence) throws IOException {
+        Encoder encoder = new Encoder();
+        byte[] line = new byte[256];
+        byte[] entry = new byte[MAX_RECORD_BYTES];
+        long count = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(text), IO_BUFFER);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(binary), IO_BUFFER)) {
+            int len = 0;
+            boolean pending = false; // a line has been started
+            for (int b; (b = in.read()) >= 0; ) {
+                if (b == '\n') {
+                    if (len > 0 && line[len - 1] == '\r') len--;
+                    out.write(entry, 0, encoder.encode(line, 0, len, firstSequence + count++, entry, 0));
+                    len = 0;
+                    pending = false;
+                    continue;
+                }
+                if (len == 255) throw new IllegalArgumentException("Transaction record is too long at line " + (count + 1) + ".");
+                line[len++] = (byte) b;
+                pending = true;
+            }
+            if (pending) out.write(entry, 0, encoder.encode(line, 0, len, firstSequence + count++, entry, 0));
+        }
+        return count;
+    }
+
+    /**
+     * Converts a binary transactions file back to the text form, one record
+       per line with the platform line separator
+     * @param binary Binary file
+     * @param text   Text file to write; replaced if it exists
+     * @return number of records converted
+     * @throws IOException if a file cannot be read or written, or the binary file is malformed
+     */
+    public static long binaryToText(Path binary, Path text) throws IOException {
+        byte[] line = new byte[255 + TransactionLogWriter.LINE_SEPARATOR.length];
+        long count = 0;
+        try (Reader reader = new Reader(Files.newInputStream(binary));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(text), IO_BUFFER)) {
+            while (reader.next()) {
+                int end = reader.toText(line, 0);
+                System.arraycopy(TransactionLogWriter.LINE_SEPARATOR, 0, line, end, TransactionLogWriter.LINE_SEPARATOR.length);
+                out.write(line, 0, end + TransactionLogWriter.LINE_SEPARATOR.length);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Opens a binary log for reading
+     * @param binary Binary file
+     * @return a reader positioned before the first record
+     * @throws IOException if the file cannot be opened
+     */
+    public static Reader open(Path binary) throws IOException {
+        return new Reader(Files.newInputStream(binary));
+    }
+
+    // CC_AAAAAAAAAAAAAAAAAAAA_NNNNN_DDDDD.DD__ : the fields stored as numbers hold digits
+    private static boolean hasRecordLayout(byte[] line, int off) {
+        return isDigits(line, off, 2)
+                && line[off + 2] == ' ' && line[off + 23] == ' '
+                && isDigits(line, off + 24, 5)
+                && line[off + 29] == ' '
+                && isDigits(line, off + 30, 5)
+                && line[off + 35] == '.'
+                && isDigits(line, off + 36, 2);
+    }
+
+    private static boolean isDigits(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if (b[i] < '0' || b[i] > '9') return false;
+        }
+        return true;
+    }
+
+    private static long digits(byte[] b, int off, int len) {
+        long v = 0;
+        for (int i = off; i < off + len; i++) v = v * 10 + (b[i] - '0');
+        return v;
+    }
+
+    private static void putDigits(byte[] dst, int off, long v, int len) {
+        for (int i = off + len - 1; i >= off; i--) {
+            dst[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+
+    // dictionary key of a field; ISO-8859-1 maps every byte to one char, so no byte is lost
+    private static String key(byte[] b, int off, int len) {
+        return new String(b, off, len, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int putVarLong(byte[] dst, int off, long v) {
+        while ((v & ~0x7FL) != 0) {
+            dst[off++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        dst[off++] = (byte) v;
+        return off;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
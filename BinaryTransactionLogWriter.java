@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BinaryTransactionLogWriter.java
+ - Writes transaction records in the binary form of BinaryTransactionLog.
+ - Each record is encoded to its 40-byte text form first and then to binary
+   entries, so the binary file always converts back to exactly the text
+   the other writers would have written.
+ - Entries are collected in one reusable direct buffer that is written to
+   the FileChannel when full; the buffer is kept across open()/close().
+ */
+public class BinaryTransactionLogWriter implements TransactionLogOutput {
+    private final ByteBuffer buffer;
+    private FileChannel channel; // open file, or null
+    private final BinaryTransactionLog.Encoder encoder = new BinaryTransactionLog.Encoder();
+    private final byte[] text = new byte[TransactionRecord.MAX_FIXED40_BYTES];  // one record in text form
+    private final byte[] entries = new byte[BinaryTransactionLog.MAX_RECORD_BYTES]; // its binary entries
+
+    /**
+     * Constructs a writer
+     * @param bufferBytes Size of the direct buffer; at least one record
+     */
+    public BinaryTransactionLogWriter(int bufferBytes) {
+        if (bufferBytes < BinaryTransactionLog.MAX_RECORD_BYTES) throw new IllegalArgumentException("Buffer too small.");
+        buffer = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Opens the file records are written to, closing any previous one; the
+       first record written starts a new set of name definitions
+     * @param path   File to write
+     * @param append true to add to the end of an existing file, false to replace it
+     * @throws IOException if the file cannot be opened
+     */
+    @Override
+    public void open(Path path, boolean append) throws IOException {
+        close();
+        channel = append
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        encoder.reset();
+    }
+
+    @Override
+    public int append(TransactionRecord record, long sequence) throws IOException {
+        if (buffer.remaining() < entries.length) flush();
+        int end = encoder.encode(text, 0, record.encodeFixed40(text, 0), sequence, entries, 0);
+        buffer.put(entries, 0, end);
+        return end;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        return entries.length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel == null) throw new IOException("Transaction log is not open.");
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void force() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * Writes buffered entries and closes the file; the buffer is kept for reuse
+     * @throws IOException if the entries cannot be written or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -1,5 +1,25 @@
 import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /**
  * FileAccountsRepository.java
@@ -8,93 +28,891 @@ import java.util.*;
  - This class loads account records from a fixed-format accounts file
    into memory and writes all account data back to the file on save.
  - Accounts are stored internally in a map keyed by their 5-digit account ID.
+ - Large files can optionally be loaded through a memory mapping that is
+   parsed in parallel chunks on the common ForkJoinPool.
+ - Accounts changed since the last load/save are tracked as dirty; when no
+   accounts were added or removed, save() rewrites only their fixed 38-byte
+   slots in place instead of the whole file.
+ - An optional AccountsJournal records every change as it happens and is
+   replayed on load() to recover changes made after the last save. The
+   accounts file is forced to disk before the journal is truncated.
+ - In lazy mode, load() only indexes the byte offset of each record by
+   account ID and an Account is parsed the first time it is looked up.
+ - In asynchronous save mode, save() only formats the changed accounts and
+   hands them to an AccountsSnapshotWriter, which merges them into its own
+   copy of the file's records and replaces the file in the background.
+ - The file can optionally be watched for changes made by other processes;
+   a changed file is re-read on a background thread and only the records
+   that differ are applied to the in-memory map, on the next repository call.
+   Reads that overlap one of the repository's own writes of the file, or
+   that started before its latest save, are dropped so they cannot revert
+   saved accounts.
  */
 
 public class FileAccountsRepository implements AccountsRepository {
+    // returned by parseRecord() for the END_OF_FILE trailer record
+    static final Account END_OF_FILE = Account.ofCents("00000", "END_OF_FILE", 'A', 0, "SP");
+
+    // 37 record characters plus the '\n' line terminator
+    private static final int RECORD_BYTES = 38;
+
+    // chunks smaller than this are parsed on a single worker
+    private static final int PARALLEL_CHUNK_BYTES = 64 * 1024;
+
+    // time to let a writer finish before a changed file is re-read
+    private static final long RELOAD_SETTLE_MILLIS = 100;
+
+    // account ids are 5 digits
+    private static final int MAX_ACCOUNTS = 100000;
+
     private final String accountsFilePath;
     private final Map<String, Account> accounts = new HashMap<>();
+    private boolean mappedLoad = false; // parse a memory mapping of the file in parallel on load()
+    private boolean lazyLoad = false;   // only index record offsets on load() and parse on first access
+    private boolean validateOnLoad = false; // check the whole file with FixedRecordValidator before load()
+
+    // lazy mode: offset of each not yet parsed record indexed by numeric id, -1 if none
+    private int[] lazyOffsets;
+    private ByteBuffer lazySource; // mapping of the accounts file the offsets refer to
+
+    // record index of each account in the file as last loaded or saved
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int fileRecordCount = 0; // account records in the file as last loaded or saved
+    // ids of accounts mutated, added or removed since the last load or save
+    private final Set<String> dirtyIds = new HashSet<>();
+    // set when the file layout no longer matches slots (accounts added/removed, irregular file)
+    private boolean fullRewriteNeeded = true;
+
+    private final AccountChangeListener dirtyTracker = this::accountChanged;
+
+    private AccountsJournal journal; // write-ahead journal of changes since the last save, may be null
+    private boolean journalShared;   // the journal belongs to a ShardedAccountsRepository, which replays and truncates it
+
+    private AccountsSnapshotWriter snapshotWriter; // writes saves in the background, may be null
+    // false until the snapshot writer's records describe the loaded accounts
+    private boolean snapshotRecordsValid = false;
+
+    private final AccountIdAllocator ids = new AccountIdAllocator(); // rebuilt on load() and reload
+
+    private WatchService watcher; // watches the accounts file for outside changes, may be null
+    // latest complete contents of the watched file, waiting to be applied by the owning thread
+    private final AtomicReference<Reload> pendingReload = new AtomicReference<>();
+    // writes of the accounts file by this repository started and finished, including background snapshots
+    private final AtomicLong writesStarted = new AtomicLong();
+    private final AtomicLong writesFinished = new AtomicLong();
+
+    // the records of the watched file, read while writesStarted was at the given count
+    private static final class Reload {
+        final long writes;
+        final Map<String, Account> records;
+
+        Reload(long writes, Map<String, Account> records) {
+            this.writes = writes;
+            this.records = records;
+        }
+    }
 
     public FileAccountsRepository(String filename) {
         this.accountsFilePath = filename;
     }
 
+    /**
+     * Selects how load() reads the accounts file
+     * @param mappedLoad true to memory-map the file and parse it in parallel chunks,
+     *                   false to read it line by line on the calling thread
+     */
+    public void setMappedLoad(boolean mappedLoad) {
+        this.mappedLoad = mappedLoad;
+    }
+
+    /**
+     * Selects whether load() parses every record up front
+     * @param lazyLoad true to only index record offsets on load() and parse each
+     *                 account the first time it is looked up, false to parse all records
+     */
+    public void setLazyLoad(boolean lazyLoad) {
+        this.lazyLoad = lazyLoad;
+    }
+
+    /**
+     * Selects whether load() checks the file before trusting it
+     * @param validateOnLoad true to validate every record first and refuse to load
+     *                       a malformed file, false to skip records that are too short
+     */
+    public void setValidateOnLoad(boolean validateOnLoad) {
+        this.validateOnLoad = validateOnLoad;
+    }
+
+    /**
+     * Attaches a write-ahead journal that records every account change and
+     * is replayed on load() to recover changes made after the last save
+     * @param journal Journal to record changes in, or null to disable journaling
+     */
+    public void setJournal(AccountsJournal journal) {
+        this.journal = journal;
+        this.journalShared = false;
+    }
+
+    // records changes in a journal shared by the shards of a ShardedAccountsRepository;
+    // load() does not replay it and save() does not truncate it, and saves are written
+    // on the calling thread so the owner knows when every shard is on disk
+    void setSharedJournal(AccountsJournal journal) {
+        this.journal = journal;
+        this.journalShared = journal != null;
+    }
+
+    // applies the entries of the shared journal that belong to this shard; called by its owner after load()
+    void replaySharedJournal(Predicate<String> ownsId) {
+        journal.replay(acc -> {
+            if (ownsId.test(acc.getId())) replayUpdate(acc);
+        }, id -> {
+            if (ownsId.test(id)) replayRemove(id);
+        });
+        rebuildIds();
+    }
+
+    /**
+     * Selects whether save() blocks while the file is written; background
+     * saves already started are finished before the mode changes
+     * @param asyncSave true to capture a snapshot and write it on a background
+     *                  thread, false to write the file on the calling thread
+     */
+    public void setAsyncSave(boolean asyncSave) {
+        if (asyncSave == (snapshotWriter != null)) return;
+
+        // a later save must not race an in-flight snapshot for the file
+        awaitSave();
+        this.snapshotWriter = asyncSave ? new AccountsSnapshotWriter(accountsFilePath, writesFinished::incrementAndGet) : null;
+        this.snapshotRecordsValid = false;
+    }
+
+    /**
+     * Blocks until all background saves started so far have been written
+     */
+    public void awaitSave() {
+        if (snapshotWriter != null) snapshotWriter.await();
+    }
+
+    /**
+     * Starts watching the accounts file for changes made by other processes.
+     * Changed records are applied on the next repository call; accounts with
+     * unsaved local changes keep their local state.
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher != null) return;
+
+        // a lazily indexed mapping must not outlive an outside rewrite of the file
+        materializeAll();
+
+        Path file = Paths.get(accountsFilePath).toAbsolutePath();
+        Path dir = file.getParent();
+        watcher = file.getFileSystem().newWatchService();
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WatchService ws = watcher;
+        Thread t = new Thread(() -> watch(ws, file.getFileName()), "accounts-file-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Stops watching the accounts file
+     */
+    public synchronized void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+        }
+        watcher = null;
+    }
+
+    // watcher thread: re-reads the file after it settles and hands the result to the owning thread
+    private void watch(WatchService ws, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (fileName.equals(event.context())) changed = true;
+                    }
+                    key.reset();
+                    // coalesce the burst of events a single rewrite produces
+                    key = ws.poll(RELOAD_SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (!changed) continue;
+
+                // our own write in progress: its contents are already in memory
+                long finished = writesFinished.get();
+                long started = writesStarted.get();
+                if (started != finished) continue;
+
+                Map<String, Account> latest = readRecords(accountsFilePath);
+                if (latest != null) pendingReload.set(new Reload(started, latest));
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watching stopped
+        }
+    }
+
+    // reads every record of a complete accounts file; null if the file cannot
+    // be read or does not end with END_OF_FILE yet (it is still being written)
+    private static Map<String, Account> readRecords(String path) {
+        Map<String, Account> records = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if (acc == END_OF_FILE) return records;
+                records.put(acc.getId(), acc);
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    // applies the records that differ between a reloaded file and memory
+    private void applyPendingReload() {
+        if (pendingReload.get() == null) return;
+        Reload reload = pendingReload.getAndSet(null);
+        // a save started after the read, which may have seen the file before it
+        if (reload == null || reload.writes != writesStarted.get()) return;
+        Map<String, Account> latest = reload.records;
+
+        boolean changed = false;
+        for (Map.Entry<String, Account> e : latest.entrySet()) {
+            String id = e.getKey();
+            if (dirtyIds.contains(id)) continue; // unsaved local changes win
+
+            Account current = accounts.get(id);
+            Account incoming = e.getValue();
+            if (current != null) {
+                if (current.getName().equals(incoming.getName())
+                        && current.getStatus() == incoming.getStatus()
+                        && current.getBalanceCents() == incoming.getBalanceCents()) continue;
+
+                // the plan is not part of the file, keep the one we know
+                incoming.setPlan(current.getPlan());
+                current.setChangeListener(null);
+            }
+            incoming.setChangeListener(dirtyTracker);
+            accounts.put(id, incoming);
+            changed = true;
+        }
+
+        Iterator<Map.Entry<String, Account>> it = accounts.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Account> e = it.next();
+            if (latest.containsKey(e.getKey()) || dirtyIds.contains(e.getKey())) continue;
+            e.getValue().setChangeListener(null);
+            it.remove();
+            changed = true;
+        }
+
+        if (changed) {
+            // slots describe our last load/save, not the outside rewrite
+            fullRewriteNeeded = true;
+            snapshotRecordsValid = false;
+            rebuildIds();
+        }
+    }
+
     // loads account data from persistent storage
     @Override
     public void load() {
+        // the file must not be replaced by an older background save after it is read
+        awaitSave();
+        if (validateOnLoad) validate();
+
         accounts.clear();
+        slots.clear();
+        dirtyIds.clear();
+        fileRecordCount = 0;
+        fullRewriteNeeded = true;
+        snapshotRecordsValid = false;
+        lazyOffsets = null;
+        lazySource = null;
+        pendingReload.set(null);
+
+        // a watched file is always parsed eagerly, see startWatching()
+        if (!(lazyLoad && watcher == null && loadIndex()) && !(mappedLoad && loadMapped())) loadSequential();
+        if (journal != null && !journalShared) journal.replay(this::replayUpdate, this::replayRemove);
+        rebuildIds();
+    }
 
+    // throws if the accounts file exists but is malformed; the loaded state is left as it was
+    private void validate() {
+        FixedRecordValidator.Result result;
+        try {
+            result = FixedRecordValidator.validateAccounts(accountsFilePath);
+        } catch (IOException e) {
+            return; // a missing or unreadable file loads as empty
+        }
+        if (!result.isValid()) {
+            throw new IllegalStateException("Accounts file has " + result.getInvalidCount()
+                    + " invalid record(s), first at byte offset " + result.getInvalidOffsets()[0] + ".");
+        }
+    }
+
+    // marks every loaded or still only indexed account number as used
+    private void rebuildIds() {
+        ids.reset();
+        for (String id : accounts.keySet()) {
+            AccountId n = AccountId.parse(id);
+            if (n != null) ids.markUsed(n.intValue());
+        }
+        if (lazyOffsets != null) {
+            for (int n = 0; n < MAX_ACCOUNTS; n++) {
+                if (lazyOffsets[n] >= 0) ids.markUsed(n);
+            }
+        }
+    }
+
+    // reads the accounts file line by line on the calling thread
+    private void loadSequential() {
         try (BufferedReader reader = new BufferedReader(new FileReader(accountsFilePath))) {
+            // the layout is regular if every line is a 37-char record followed by '\n',
+            // ids are unique and END_OF_FILE is the last record
+            boolean regular = true;
+            int slot = 0;
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
             String line;
             while ((line = reader.readLine()) != null) {
-                if (line.length() < 37) continue; // tolerate bad lines
+                if (line.length() != 37) regular = false;
+
+                Account acc = parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if (acc == END_OF_FILE) {
+                    fullRewriteNeeded = !(regular && fileLength() == (long) (slot + 1) * RECORD_BYTES);
+                    fileRecordCount = slot;
+                    break;
+                }
+                if (!track(acc, slot++)) regular = false;
+            }
+        } catch (IOException ignored) {
+            // start empty if file missing/unreadable
+        }
+    }
+
+    // memory-maps the accounts file and parses it in parallel chunks,
+    // returning false if the file is too large for a single mapping
+    private boolean loadMapped() {
+        try (FileChannel channel = FileChannel.open(Paths.get(accountsFilePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return false;
+            if (size == 0) return true;
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ParsedChunk parsed = ForkJoinPool.commonPool().invoke(new ParseChunkTask(buffer, 0, (int) size));
+
+            // chunks are merged in file order, so later duplicates win as in the sequential load
+            boolean regular = parsed.regular && parsed.endOfFileOffset == size - RECORD_BYTES;
+            for (int i = 0; i < parsed.accounts.size(); i++) {
+                int offset = parsed.offsets[i];
+                if (offset % RECORD_BYTES != 0) regular = false;
+                if (!track(parsed.accounts.get(i), offset / RECORD_BYTES)) regular = false;
+            }
+            fullRewriteNeeded = !regular;
+            fileRecordCount = parsed.accounts.size();
+        } catch (IOException ignored) {
+            // start empty if file missing/unreadable
+        }
+        return true;
+    }
+
+    // memory-maps the accounts file and records the offset of each account's
+    // record without parsing it; returns false if the file is too large for a
+    // single mapping or has ids that are not plain 5-digit numbers
+    private boolean loadIndex() {
+        try (FileChannel channel = FileChannel.open(Paths.get(accountsFilePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return false;
 
-                // Format (37 chars):
-                // NNNNN_ AAAAAAAAAAAAAAAAAAAA _S_ PPPPPPPP
-                String id = FixedFmt.acct5(line.substring(0, 5));
-                String name = line.substring(6, 26).trim();
-                char status = line.charAt(27);
-                String balStr = line.substring(29, 37);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int[] offsets = new int[MAX_ACCOUNTS];
+            Arrays.fill(offsets, -1);
 
-                if ("END_OF_FILE".equals(name)) break;
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
 
-                if (status != 'A' && status != 'D') status = 'A';
+            // the layout is regular if every line is a 37-char record followed by '\n',
+            // ids are unique and END_OF_FILE is the last record
+            boolean exact = true;
+            boolean regular = false;
+            int records = 0;
+            int end = (int) size;
+            int pos = 0;
+            while (pos < end) {
+                int lineEnd = pos;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+                int len = lineEnd - pos;
+                if (len > 0 && buffer.get(lineEnd - 1) == '\r') len--;
+                if (lineEnd - pos != 37) exact = false;
 
-                double balance = parseMoney(balStr);
+                if (len >= 37) { // shorter lines are tolerated and skipped
+                    if (!decoder.decodeAccount(buffer, pos)) return false;
+                    if (decoder.isEndOfFile()) {
+                        regular = exact && pos + RECORD_BYTES == end;
+                        break;
+                    }
 
-                // Plan isn't in current accounts file (per spec) — default to SP
-                Account acc = new Account(id, name, status, balance, "SP");
-                accounts.put(id, acc);
+                    int id = decoder.getId();
+                    if (offsets[id] >= 0) exact = false;
+                    offsets[id] = pos; // later duplicates win as in the eager load
+                    records++;
+                }
+                pos = lineEnd + 1;
             }
+
+            lazyOffsets = offsets;
+            lazySource = buffer;
+            fileRecordCount = records;
+            fullRewriteNeeded = !regular;
         } catch (IOException ignored) {
             // start empty if file missing/unreadable
         }
+        return true;
+    }
+
+    // returns the account with the given 5-digit id, parsing it from the lazily
+    // indexed file on first access; null if there is no such account
+    private Account find(String id) {
+        Account acc = accounts.get(id);
+        if (acc != null || lazyOffsets == null) return acc;
+
+        int n = lazyIndex(id);
+        if (n < 0 || lazyOffsets[n] < 0) return null;
+        int offset = lazyOffsets[n];
+        lazyOffsets[n] = -1;
+
+        acc = parseRecord(lazySource, offset, 37, new FixedRecordDecoder());
+        track(acc, offset / RECORD_BYTES);
+        return acc;
+    }
+
+    // numeric index of a 5-digit id into lazyOffsets, or -1 if it cannot be indexed
+    private static int lazyIndex(String id) {
+        try {
+            int n = Integer.parseInt(id);
+            return n >= 0 && n < MAX_ACCOUNTS ? n : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // parses every account that is still only indexed; needed before the
+    // whole file is rewritten, after which the mapping is no longer valid
+    private void materializeAll() {
+        if (lazyOffsets == null) return;
+        for (int n = 0; n < MAX_ACCOUNTS; n++) {
+            if (lazyOffsets[n] >= 0) find(String.format("%05d", n));
+        }
+        lazyOffsets = null;
+        lazySource = null;
+    }
+
+    // applies a journaled account state on top of the loaded file
+    private void replayUpdate(Account acc) {
+        String id = acc.getId();
+        acc.setChangeListener(dirtyTracker);
+        if (find(id) == null) fullRewriteNeeded = true;
+        accounts.put(id, acc);
+        dirtyIds.add(id);
+    }
+
+    // applies a journaled account removal on top of the loaded file
+    private void replayRemove(String id) {
+        if (find(id) != null) {
+            accounts.remove(id);
+            fullRewriteNeeded = true;
+            dirtyIds.add(id);
+        }
+    }
+
+    // marks a mutated account dirty and journals its new state
+    private void accountChanged(Account acc) {
+        dirtyIds.add(FixedFmt.acct5(acc.getId()));
+        if (journal != null) journal.recordUpdate(acc);
+    }
+
+    // registers a loaded account and the file slot it was read from,
+    // returning false if it replaced an earlier record with the same id
+    private boolean track(Account acc, int slot) {
+        Account previous = accounts.put(acc.getId(), acc);
+        slots.put(acc.getId(), slot);
+        acc.setChangeListener(dirtyTracker);
+        return previous == null;
+    }
+
+    // current length of the accounts file, or -1 if it cannot be determined
+    private long fileLength() {
+        File file = new File(accountsFilePath);
+        return file.isFile() ? file.length() : -1;
+    }
+
+    /**
+     * Parses one 37-character accounts file record
+     * @param line Record text without its line terminator
+     * @return the parsed Account, END_OF_FILE for the trailer record,
+     *         or null if the line is too short to be a record
+     */
+    static Account parseRecord(String line) {
+        return parseRecord(line, new FixedRecordDecoder());
+    }
+
+    /**
+     * Parses one 37-character accounts file record with a reusable decoder,
+       falling back to field by field parsing for records it does not accept
+     * @param line    Record text without its line terminator
+     * @param decoder Decoder to reuse
+     * @return the parsed Account, END_OF_FILE for the trailer record,
+     *         or null if the line is too short to be a record
+     */
+    static Account parseRecord(String line, FixedRecordDecoder decoder) {
+        if (line.length() < 37) return null;
+        if (decoder.decodeAccount(line, 0)) {
+            if (decoder.isEndOfFile()) return END_OF_FILE;
+            return Account.ofCents(FixedFmt.acct5(decoder.getId()), decoder.getName(),
+                    decoder.getStatus(), decoder.getCents(), "SP");
+        }
+
+        // Format (37 chars):
+        // NNNNN_ AAAAAAAAAAAAAAAAAAAA _S_ PPPPPPPP
+        String id = FixedFmt.acct5(line.substring(0, 5));
+        String name = line.substring(6, 26).trim();
+        char status = line.charAt(27);
+        String balStr = line.substring(29, 37);
+
+        if ("END_OF_FILE".equals(name)) return END_OF_FILE;
+
+        if (status != 'A' && status != 'D') status = 'A';
+
+        // Plan isn't in current accounts file (per spec) — default to SP
+        return Account.ofCents(id, name, status, parseCents(balStr), "SP");
+    }
+
+    /**
+     * Parses one accounts file record straight from a buffer, falling back to
+       the String parser only for records the decoder does not accept
+     * @param buffer  Buffer holding the record; its position is not changed
+     * @param pos     Index of the record in buffer
+     * @param len     Length of the line without its terminator
+     * @param decoder Decoder to reuse
+     * @return the parsed Account, END_OF_FILE for the trailer record,
+     *         or null if the line is too short to be a record
+     */
+    static Account parseRecord(ByteBuffer buffer, int pos, int len, FixedRecordDecoder decoder) {
+        if (len < 37) return null;
+        if (decoder.decodeAccount(buffer, pos)) {
+            if (decoder.isEndOfFile()) return END_OF_FILE;
+            return Account.ofCents(FixedFmt.acct5(decoder.getId()), decoder.getName(),
+                    decoder.getStatus(), decoder.getCents(), "SP");
+        }
+
+        byte[] bytes = new byte[len];
+        ByteBuffer view = buffer.duplicate();
+        view.position(pos);
+        view.get(bytes);
+        return parseRecord(new String(bytes, Charset.defaultCharset()), decoder);
+    }
+
+    /**
+     * Formats an account as a 37-character accounts file record
+     * @param acc Account to format
+     * @return Fixed-width record text without a line terminator
+     */
+    static String formatRecord(Account acc) {
+        String line =
+                FixedFmt.acct5(acc.getId()) + " " +
+                FixedFmt.alpha20(acc.getName()) + " " +
+                acc.getStatus() + " " +
+                FixedFmt.money8Cents(acc.getBalanceCents());
+
+        // must be exactly 37 chars (plus newline)
+        return FixedFmt.padRight(line, 37);
+    }
+
+    /**
+     * Encodes an account as a 37-byte accounts file record without allocating;
+       the bytes match formatRecord() in the platform charset
+     * @param acc Account to encode
+     * @param dst Destination array
+     * @param off Offset of the record in dst
+     * @return the offset just past the record, or -1 if the name is not ASCII
+     *         and the record has to be encoded from formatRecord() instead
+     */
+    static int encodeRecord(Account acc, byte[] dst, int off) {
+        if (!FixedFmt.isAscii(acc.getName())) return -1;
+        off = FixedFmt.putAcct5(dst, off, acc.getId());
+        dst[off++] = ' ';
+        off = FixedFmt.putAlpha20(dst, off, acc.getName());
+        dst[off++] = ' ';
+        dst[off++] = (byte) acc.getStatus();
+        dst[off++] = ' ';
+        return FixedFmt.putMoney8Cents(dst, off, acc.getBalanceCents());
+    }
+
+    // accounts parsed from one chunk of a mapped file, in file order
+    private static final class ParsedChunk {
+        final List<Account> accounts;
+        final int[] offsets;        // byte offset of each account's record in the file
+        final int endOfFileOffset;  // byte offset of the END_OF_FILE record, or -1
+        final boolean regular;      // every line in the chunk was exactly 37 chars
+
+        ParsedChunk(List<Account> accounts, int[] offsets, int endOfFileOffset, boolean regular) {
+            this.accounts = accounts;
+            this.offsets = offsets;
+            this.endOfFileOffset = endOfFileOffset;
+            this.regular = regular;
+        }
+    }
+
+    // parses the lines in [start, end) of a mapped accounts file, splitting
+    // the range at a line boundary while it is larger than PARALLEL_CHUNK_BYTES
+    private static final class ParseChunkTask extends RecursiveTask<ParsedChunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        ParseChunkTask(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            if (end - start > PARALLEL_CHUNK_BYTES) {
+                int mid = nextLineStart(start + (end - start) / 2);
+                if (mid < end) {
+                    ParseChunkTask right = new ParseChunkTask(buffer, mid, end);
+                    right.fork();
+                    ParsedChunk left = new ParseChunkTask(buffer, start, mid).compute();
+                    ParsedChunk rest = right.join();
+
+                    // anything after the END_OF_FILE record is ignored
+                    if (left.endOfFileOffset >= 0) return left;
+
+                    int n = left.accounts.size();
+                    int[] offsets = Arrays.copyOf(left.offsets, n + rest.accounts.size());
+                    System.arraycopy(rest.offsets, 0, offsets, n, rest.accounts.size());
+                    left.accounts.addAll(rest.accounts);
+                    return new ParsedChunk(left.accounts, offsets, rest.endOfFileOffset,
+                            left.regular && rest.regular);
+                }
+            }
+            return parseLines();
+        }
+
+        // returns the index just past the next '\n' at or after pos
+        private int nextLineStart(int pos) {
+            while (pos < end && buffer.get(pos) != '\n') pos++;
+            return Math.min(pos + 1, end);
+        }
+
+        private ParsedChunk parseLines() {
+            List<Account> parsed = new ArrayList<>((end - start) / RECORD_BYTES + 1);
+            int[] offsets = new int[(end - start) / RECORD_BYTES + 1];
+            boolean regular = true;
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = nextLineStart(lineStart);
+                int len = lineEnd - lineStart;
+                // strip the line terminator like BufferedReader.readLine() does
+                if (len > 0 && buffer.get(lineStart + len - 1) == '\n') len--;
+                if (len > 0 && buffer.get(lineStart + len - 1) == '\r') len--;
+                if (len != 37 || lineEnd - lineStart != RECORD_BYTES) regular = false;
+
+                Account acc = parseRecord(buffer, lineStart, len, decoder);
+                if (acc == END_OF_FILE) return new ParsedChunk(parsed, offsets, lineStart, regular);
+                if (acc != null) {
+                    if (parsed.size() == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    offsets[parsed.size()] = lineStart;
+                    parsed.add(acc);
+                }
+
+                lineStart = lineEnd;
+            }
+            return new ParsedChunk(parsed, offsets, -1, regular);
+        }
+    }
+
+    /**
+     * @return true if any account was mutated, added or removed since the last load or save
+     */
+    public boolean isModified() {
+        return !dirtyIds.isEmpty();
     }
 
     // writes account data to persistent storage
     @Override
     public void save() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(accountsFilePath))) {
+        applyPendingReload();
+        if (snapshotWriter != null && !journalShared) {
+            saveSnapshot();
+            return;
+        }
+
+        writesStarted.incrementAndGet();
+        try {
+            saveFile();
+        } finally {
+            writesFinished.incrementAndGet();
+        }
+    }
+
+    // writes the dirty slots in place, or the whole file, on the calling thread
+    private void saveFile() {
+        if (!fullRewriteNeeded && saveInPlace()) {
+            // saveInPlace() forced the file if there is a journal to truncate
+            dirtyIds.clear();
+            if (journal != null && !journalShared) journal.truncate();
+            return;
+        }
+
+        materializeAll();
+        boolean written = false;
+        try (FileOutputStream file = new FileOutputStream(accountsFilePath);
+             OutputStream out = new BufferedOutputStream(file, 64 * 1024)) {
             // write sorted by account id
             List<String> ids = new ArrayList<>(accounts.keySet());
             Collections.sort(ids);
 
+            // every record is encoded into the same buffer, followed by the platform line separator
+            String separator = System.lineSeparator();
+            byte[] record = new byte[37 + separator.length()];
+            for (int i = 0; i < separator.length(); i++) record[37 + i] = (byte) separator.charAt(i);
+
+            boolean fixedWidth = true; // every record took exactly 37 bytes
+            slots.clear();
             for (String id : ids) {
                 Account acc = accounts.get(id);
                 if (acc == null) continue;
 
-                String line =
-                        FixedFmt.acct5(acc.getId()) + " " +
-                        FixedFmt.alpha20(acc.getName()) + " " +
-                        acc.getStatus() + " " +
-                        FixedFmt.money8(acc.getBalance());
-
-                // must be exactly 37 chars (plus newline)
-                writer.println(FixedFmt.padRight(line, 37));
+                slots.put(id, slots.size());
+                if (encodeRecord(acc, record, 0) < 0) {
+                    // a non-ASCII name is longer in the platform charset
+                    out.write((formatRecord(acc) + separator).getBytes(Charset.defaultCharset()));
+                    fixedWidth = false;
+                } else {
+                    out.write(record);
+                }
             }
 
             // END_OF_FILE record
-            String eofLine =
-                    "00000 " +
-                    FixedFmt.alpha20("END_OF_FILE") + " " +
-                    "A " +
-                    "00000.00";
-            writer.println(FixedFmt.padRight(eofLine, 37));
+            encodeRecord(END_OF_FILE, record, 0);
+            out.write(record);
+            out.flush();
+            // the journal may only be truncated once the file is on disk
+            if (journal != null) file.getFD().sync();
+            written = true;
 
+            fileRecordCount = slots.size();
+            // slots can only be rewritten in place if records are 38 bytes apart
+            fullRewriteNeeded = !fixedWidth || record.length != RECORD_BYTES;
+            dirtyIds.clear();
         } catch (IOException ignored) {
         }
+
+        // every journaled change is now in the accounts file
+        if (written && journal != null && !journalShared) journal.truncate();
+    }
+
+    // formats the changed accounts and hands them to the background writer;
+    // after a load the writer rebuilds the other records from the file itself,
+    // which holds every account that is not dirty
+    private void saveSnapshot() {
+        Map<String, String> changes = new HashMap<>();
+        for (String id : dirtyIds) {
+            Account acc = accounts.get(id);
+            changes.put(id, acc == null ? null : formatRecord(acc));
+        }
+        boolean rebase = !snapshotRecordsValid;
+        snapshotRecordsValid = true;
+        dirtyIds.clear();
+        // slots no longer describe the file once the writer replaces it
+        fullRewriteNeeded = true;
+
+        // finished by the writer once it is done with this snapshot
+        writesStarted.incrementAndGet();
+        if (journal == null) {
+            snapshotWriter.submit(changes, rebase, null);
+        } else {
+            // journal entries appended after this point are not in the snapshot
+            AccountsJournal j = journal;
+            long mark = j.entryCount();
+            snapshotWriter.submit(changes, rebase, () -> j.truncateIfUnchanged(mark));
+        }
+    }
+
+    // rewrites only the slots of dirty accounts; returns false if the
+    // file no longer has the expected layout and needs a full rewrite
+    private boolean saveInPlace() {
+        if (dirtyIds.isEmpty()) return true;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(accountsFilePath), StandardOpenOption.WRITE)) {
+            if (channel.size() != (long) (fileRecordCount + 1) * RECORD_BYTES) return false;
+
+            byte[] bytes = new byte[RECORD_BYTES];
+            bytes[37] = '\n';
+            ByteBuffer record = ByteBuffer.wrap(bytes);
+            for (String id : dirtyIds) {
+                Account acc = accounts.get(id);
+                Integer slot = slots.get(id);
+                if (acc == null || slot == null) return false;
+
+                if (encodeRecord(acc, bytes, 0) < 0) return false; // does not fit its slot
+                record.clear();
+                long position = (long) slot * RECORD_BYTES;
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+            }
+            // the journal may only be truncated once the file is on disk
+            if (journal != null) channel.force(false);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     // determines whether an account exists
     @Override
     public boolean exists(String accountId) {
-        return accounts.containsKey(FixedFmt.acct5(accountId));
+        applyPendingReload();
+        return find(FixedFmt.acct5(accountId)) != null;
     }
 
     // retrieves an account by identifier
     @Override
     public Account get(String accountId) {
+        applyPendingReload();
         String id = FixedFmt.acct5(accountId);
-        Account a = accounts.get(id);
+        Account a = find(id);
+        if (a == null) throw new IllegalArgumentException("Account does not exist.");
+        return a;
+    }
+
+    // determines whether an account exists, without re-normalizing the id
+    @Override
+    public boolean exists(AccountId accountId) {
+        applyPendingReload();
+        return accountId != null && find(accountId.toString()) != null;
+    }
+
+    // retrieves an account by typed identifier
+    @Override
+    public Account get(AccountId accountId) {
+        applyPendingReload();
+        Account a = accountId == null ? null : find(accountId.toString());
         if (a == null) throw new IllegalArgumentException("Account does not exist.");
         return a;
     }
@@ -102,36 +920,77 @@ public class FileAccountsRepository implements AccountsRepository {
     // adds a new account to storage
     @Override
     public void add(Account account) {
+        applyPendingReload();
         String id = FixedFmt.acct5(account.getId());
+        int n = lazyIndex(id);
+        if (lazyOffsets != null && n >= 0) lazyOffsets[n] = -1; // replaced, never parse it
         accounts.put(id, account);
+        if (n >= 0) ids.markUsed(n);
+        account.setChangeListener(dirtyTracker);
+        dirtyIds.add(id);
+        fullRewriteNeeded = true;
+        if (journal != null) journal.recordUpdate(account);
     }
 
     // removes an account from storage
     @Override
     public void remove(String accountId) {
-        accounts.remove(FixedFmt.acct5(accountId));
+        applyPendingReload();
+        String id = FixedFmt.acct5(accountId);
+        Account removed = find(id);
+        if (removed != null) {
+            accounts.remove(id);
+            ids.release(lazyIndex(id));
+            removed.setChangeListener(null);
+            dirtyIds.add(id);
+            fullRewriteNeeded = true;
+            if (journal != null) journal.recordRemove(removed.getId());
+        }
+    }
+
+    // removes an account by typed identifier
+    @Override
+    public void remove(AccountId accountId) {
+        if (accountId != null) remove(accountId.toString());
     }
 
-    // generates the next available account identifier
+
+    // groups the journal entries of the changes until commitChanges()
+    @Override
+    public void beginChanges() {
+        if (journal != null) journal.begin();
+    }
+
+    // writes the grouped journal entries
+    @Override
+    public void commitChanges() {
+        if (journal != null) journal.commit();
+    }
+
+    // reserves the lowest free account identifier; ids of removed accounts are reused
     @Override
     public String nextAccountId() {
-        int max = 0;
-        for (String id : accounts.keySet()) {
-            try {
-                max = Math.max(max, Integer.parseInt(id));
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        return String.format("%05d", max + 1);
+        applyPendingReload();
+        return FixedFmt.acct5(ids.allocate());
     }
 
-    // parses a money-formatted string into a double value, returning 0.0 if the input is invalid.
-    private static double parseMoney(String s) {
+    /**
+     * @param id Account number
+     * @return true if the number belongs to an account, loaded or not, or was reserved
+     */
+    boolean isIdUsed(int id) {
+        applyPendingReload();
+        return ids.isUsed(id);
+    }
+
+    // parses a money field the decoder does not accept (a sign, an exponent, more
+    // decimals) into cents, rounding half up; 0 if it is not a number
+    private static long parseCents(String s) {
         // money field is like 00110.00 (8 chars)
         try {
-            return Double.parseDouble(s.trim());
-        } catch (NumberFormatException e) {
-            return 0.0;
+            return new BigDecimal(s.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return 0;
         }
     }
 }
@@ -1,3 +1,6 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * FixedFmt.java
  - Utility class providing helper methods for formatting values
@@ -6,8 +9,16 @@
  - These methods ensure consistent formatting for account IDs,
    names, monetary values, and miscellaneous fields when reading
    from or writing to fixed-format files.
+ - The put* methods encode the same fields straight into a caller-supplied
+   byte array or ByteBuffer at a given offset, without allocating any
+   intermediate Strings. Characters outside ASCII are written as '?', so
+   callers check isAscii() first and encode other values through the
+   String methods and the platform charset, as the files always were.
  */
 public class FixedFmt {
+    // scratch space for encoding into buffers that are not backed by an array
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[20]);
+
     /**
      * Formats a string as a left-aligned, space-padded 20-character field
      * @param name Input name string
@@ -25,12 +36,66 @@ public class FixedFmt {
      * @return Right-justified, zero-filled 5-digit account ID
      */
     public static String acct5(String acct) {
-        // right-justified, zero-filled
+        // right-justified, zero-filled; ids in range come from the AccountId pool
+        AccountId id = AccountId.parse(acct);
+        if (id != null) return id.toString();
+
         int n = 0;
         try { n = Integer.parseInt(acct.trim()); } catch (Exception ignored) {}
         return String.format("%05d", n);
     }
 
+    /**
+     * Formats a numeric account identifier as a 5-digit, zero-padded field
+     * @param id Account number, 0 to 99999
+     * @return Account number as a 5-digit string
+     */
+    public static String acct5(int id) {
+        return AccountId.of(id).toString();
+    }
+
+    /**
+     * Converts a monetary amount to a whole number of cents
+     * @param amount Monetary amount
+     * @return Amount rounded to the nearest cent
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    /**
+     * Formats a number of cents as an 8-character, zero-padded field, to 2 dp,
+       without going through String.format
+     * @param cents Monetary amount in cents
+     * @return Fixed-width monetary string (8 characters), identical to money8(cents / 100.0)
+     */
+    public static String money8Cents(long cents) {
+        if (cents < 0) cents = 0; // keep tolerant for prototype
+
+        // render "<whole>.<2 digits>" right to left
+        char[] digits = new char[22];
+        int pos = digits.length;
+        digits[--pos] = (char) ('0' + cents % 10);
+        digits[--pos] = (char) ('0' + cents / 10 % 10);
+        digits[--pos] = '.';
+        long whole = cents / 100;
+        do {
+            digits[--pos] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+
+        int len = digits.length - pos;
+        char[] field = new char[8];
+        if (len > 8) {
+            // clip for prototype; proper system would reject
+            System.arraycopy(digits, pos, field, 0, 8);
+        } else {
+            Arrays.fill(field, 0, 8 - len, '0');
+            System.arraycopy(digits, pos, field, 8 - len, len);
+        }
+        return new String(field);
+    }
+
     /**
      * Formats a monetary value as an 8-character, zero-padded field, to 2 dp.
      * @param amount Monetary amount
@@ -87,5 +152,210 @@ public class FixedFmt {
         if (b.length() > width) return b.substring(b.length() - width);
         return b.toString();
     }
-}
 
+    /**
+     * Encodes a name as a left-aligned, space-padded 20-character field, like alpha20
+     * @param dst  Destination array
+     * @param off  Offset of the field in dst
+     * @param name Input name string
+     * @return the offset just past the field
+     */
+    public static int putAlpha20(byte[] dst, int off, String name) {
+        return putTrimmed(dst, off, name, 20);
+    }
+
+    /**
+     * Encodes an account identifier as a 5-digit, zero-padded field, like acct5
+     * @param dst  Destination array
+     * @param off  Offset of the field in dst
+     * @param acct Raw account identifier
+     * @return the offset just past the field
+     */
+    public static int putAcct5(byte[] dst, int off, String acct) {
+        int n = parseAcct(acct);
+        if (n < 0) {
+            // signs, overflow and other oddities take the String.format path,
+            // clipped so the field keeps its width
+            String s = padRight(acct5(acct), 5);
+            for (int i = 0; i < 5; i++) dst[off + i] = ascii(s.charAt(i));
+            return off + 5;
+        }
+        return putAcct5(dst, off, n);
+    }
+
+    /**
+     * Encodes a numeric account identifier as a 5-digit, zero-padded field
+     * @param dst Destination array
+     * @param off Offset of the field in dst
+     * @param id  Account number, 0 to 99999
+     * @return the offset just past the field
+     */
+    public static int putAcct5(byte[] dst, int off, int id) {
+        for (int i = 4; i >= 0; i--) {
+            dst[off + i] = (byte) ('0' + id % 10);
+            id /= 10;
+        }
+        return off + 5;
+    }
+
+    /**
+     * Encodes a number of cents as an 8-character money field, like money8Cents
+     * @param dst   Destination array
+     * @param off   Offset of the field in dst
+     * @param cents Monetary amount in cents
+     * @return the offset just past the field
+     */
+    public static int putMoney8Cents(byte[] dst, int off, long cents) {
+        if (cents < 0) cents = 0; // keep tolerant for prototype
+
+        int wholeDigits = 1;
+        for (long w = cents / 100; w >= 10; w /= 10) wholeDigits++;
+
+        if (wholeDigits <= 5) {
+            // zero-filled: WWWWW.CC
+            long whole = cents / 100;
+            for (int i = 4; i >= 0; i--) {
+                dst[off + i] = (byte) ('0' + whole % 10);
+                whole /= 10;
+            }
+            dst[off + 5] = '.';
+            dst[off + 6] = (byte) ('0' + cents / 10 % 10);
+            dst[off + 7] = (byte) ('0' + cents % 10);
+        } else {
+            // clip for prototype: the leading 8 characters of the full value
+            String s = money8Cents(cents);
+            for (int i = 0; i < 8; i++) dst[off + i] = (byte) s.charAt(i);
+        }
+        return off + 8;
+    }
+
+    /**
+     * Encodes a miscellaneous 2-character field, like misc2
+     * @param dst Destination array
+     * @param off Offset of the field in dst
+     * @param mm  Input miscellaneous value
+     * @return the offset just past the field
+     */
+    public static int putMisc2(byte[] dst, int off, String mm) {
+        return putTrimmed(dst, off, mm, 2);
+    }
+
+    /**
+     * Encodes a string as a space-padded field of exact width, like padRight
+     * @param dst   Destination array
+     * @param off   Offset of the field in dst
+     * @param s     Input string (not trimmed)
+     * @param width Field width
+     * @return the offset just past the field
+     */
+    public static int putPadRight(byte[] dst, int off, String s, int width) {
+        int len = s == null ? 0 : Math.min(s.length(), width);
+        for (int i = 0; i < len; i++) dst[off + i] = ascii(s.charAt(i));
+        Arrays.fill(dst, off + len, off + width, (byte) ' ');
+        return off + width;
+    }
+
+    /**
+     * Encodes a name as a 20-character field at an absolute buffer index, like alpha20
+     * @param dst   Destination buffer; its position is not changed
+     * @param index Index of the field in dst
+     * @param name  Input name string
+     * @return the index just past the field
+     */
+    public static int putAlpha20(ByteBuffer dst, int index, String name) {
+        if (dst.hasArray()) return putAlpha20(dst.array(), dst.arrayOffset() + index, name) - dst.arrayOffset();
+        return copy(dst, index, putAlpha20(SCRATCH.get(), 0, name));
+    }
+
+    /**
+     * Encodes an account identifier as a 5-digit field at an absolute buffer index, like acct5
+     * @param dst   Destination buffer; its position is not changed
+     * @param index Index of the field in dst
+     * @param acct  Raw account identifier
+     * @return the index just past the field
+     */
+    public static int putAcct5(ByteBuffer dst, int index, String acct) {
+        if (dst.hasArray()) return putAcct5(dst.array(), dst.arrayOffset() + index, acct) - dst.arrayOffset();
+        return copy(dst, index, putAcct5(SCRATCH.get(), 0, acct));
+    }
+
+    /**
+     * Encodes a number of cents as an 8-character money field at an absolute buffer index
+     * @param dst   Destination buffer; its position is not changed
+     * @param index Index of the field in dst
+     * @param cents Monetary amount in cents
+     * @return the index just past the field
+     */
+    public static int putMoney8Cents(ByteBuffer dst, int index, long cents) {
+        if (dst.hasArray()) return putMoney8Cents(dst.array(), dst.arrayOffset() + index, cents) - dst.arrayOffset();
+        return copy(dst, index, putMoney8Cents(SCRATCH.get(), 0, cents));
+    }
+
+    /**
+     * Encodes a miscellaneous 2-character field at an absolute buffer index, like misc2
+     * @param dst   Destination buffer; its position is not changed
+     * @param index Index of the field in dst
+     * @param mm    Input miscellaneous value
+     * @return the index just past the field
+     */
+    public static int putMisc2(ByteBuffer dst, int index, String mm) {
+        if (dst.hasArray()) return putMisc2(dst.array(), dst.arrayOffset() + index, mm) - dst.arrayOffset();
+        return copy(dst, index, putMisc2(SCRATCH.get(), 0, mm));
+    }
+
+    /**
+     * Checks whether the put* methods encode a value exactly
+     * @param s Input string, may be null
+     * @return true if s is null or has only ASCII characters
+     */
+    public static boolean isAscii(String s) {
+        if (s == null) return true;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    // writes the trimmed value truncated/padded to width, like alpha20 and misc2
+    private static int putTrimmed(byte[] dst, int off, String s, int width) {
+        int start = 0;
+        int end = s == null ? 0 : s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+
+        int len = Math.min(end - start, width);
+        for (int i = 0; i < len; i++) dst[off + i] = ascii(s.charAt(start + i));
+        Arrays.fill(dst, off + len, off + width, (byte) ' ');
+        return off + width;
+    }
+
+    // parses an account identifier that is plain digits (after trimming) and
+    // at most 99999; returns -1 for anything acct5 would treat differently
+    private static int parseAcct(String acct) {
+        if (acct == null) return 0; // acct5 also maps unparseable input to 0
+        int start = 0;
+        int end = acct.length();
+        while (start < end && acct.charAt(start) <= ' ') start++;
+        while (end > start && acct.charAt(end - 1) <= ' ') end--;
+        if (start == end) return 0;
+
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = acct.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+            if (n > 99999) return -1;
+        }
+        return n;
+    }
+
+    // copies the first len scratch bytes to dst at index
+    private static int copy(ByteBuffer dst, int index, int len) {
+        dst.put(index, SCRATCH.get(), 0, len);
+        return index + len;
+    }
+
+    private static byte ascii(char c) {
+        return c < 0x80 ? (byte) c : (byte) '?';
+    }
+}
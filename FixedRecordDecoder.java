@@ -0,0 +1,263 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FixedRecordDecoder.java
+ - Decodes fixed-width account records (37 bytes) and transaction records
+   (40 bytes) straight from a byte array, a (mapped) ByteBuffer or a line
+   already read as text into primitive fields, without creating
+   intermediate Strings.
+ - A decoder is reusable: each decode call overwrites the fields of the
+   previous one. Only the holder name is turned into a String, and only
+   when the caller asks for it.
+ - Every source is read through one accessor, at(), so the field parsers
+   exist once whatever the record is decoded from.
+ - decode methods return false for records that are not in the regular
+   form (non-ASCII bytes, signs, exponents and similar oddities); callers
+   then fall back to the String-based parsers, which handle every case.
+ */
+public class FixedRecordDecoder {
+    // the source of the last record; exactly one is set
+    private ByteBuffer buffer;
+    private byte[] array;
+    private CharSequence text;
+    private int sourceLimit;    // end of the source
+
+    private int nameStart;      // trimmed holder name within the source
+    private int nameLength;
+
+    private int id;             // account number
+    private long cents;         // amount or balance in cents
+    private char status;        // account status, 'A' or 'D'
+    private int code;           // transaction code, 0 to 99
+    private char misc0, misc1;  // transaction misc field
+
+    /**
+     * Decodes a 37-byte accounts file record:
+     * NNNNN_AAAAAAAAAAAAAAAAAAAA_S_PPPPPPPP
+     * @param src   Source buffer; its position is not changed
+     * @param index Index of the record in src
+     * @return true if the record was decoded, false if it is irregular
+     */
+    public boolean decodeAccount(ByteBuffer src, int index) {
+        source(src, null, null, src.limit());
+        return decodeAccount(index);
+    }
+
+    /**
+     * Decodes a 37-byte accounts file record from an array
+     * @param src Source array
+     * @param off Offset of the record in src
+     * @return true if the record was decoded, false if it is irregular
+     */
+    public boolean decodeAccount(byte[] src, int off) {
+        source(null, src, null, src.length);
+        return decodeAccount(off);
+    }
+
+    /**
+     * Decodes a 37-character accounts file record from a line read as text
+     * @param src Source line
+     * @param off Offset of the record in src
+     * @return true if the record was decoded, false if it is irregular
+     */
+    public boolean decodeAccount(CharSequence src, int off) {
+        source(null, null, src, src.length());
+        return decodeAccount(off);
+    }
+
+    /**
+     * Decodes a 40-byte transaction record:
+     * CC_AAAAAAAAAAAAAAAAAAAA_NNNNN_PPPPPPPPMM
+     * @param src   Source buffer; its position is not changed
+     * @param index Index of the record in src
+     * @return true if the record was decoded, false if it is irregular
+     */
+    public boolean decodeTransaction(ByteBuffer src, int index) {
+        source(src, null, null, src.limit());
+        return decodeTransaction(index);
+    }
+
+    /**
+     * Decodes a 40-byte transaction record from an array
+     * @param src Source array
+     * @param off Offset of the record in src
+     * @return true if the record was decoded, false if it is irregular
+     */
+    public boolean decodeTransaction(byte[] src, int off) {
+        source(null, src, null, src.length);
+        return decodeTransaction(off);
+    }
+
+    /**
+     * @return the account number of the last decoded record
+     */
+    public int getId() { return id; }
+
+    /**
+     * @return the balance or amount of the last decoded record, in cents
+     */
+    public long getCents() { return cents; }
+
+    /**
+     * @return the account status of the last decoded account record ('A' or 'D')
+     */
+    public char getStatus() { return status; }
+
+    /**
+     * @return the transaction code of the last decoded transaction record
+     */
+    public int getCode() { return code; }
+
+    /**
+     * @return the misc field of the last decoded transaction record, trimmed
+     */
+    public String getMisc() {
+        return new String(new char[] { misc0, misc1 }).trim();
+    }
+
+    /**
+     * Checks the holder name without allocating
+     * @param name Name to compare with
+     * @return true if the trimmed holder name of the last record equals name
+     */
+    public boolean nameEquals(String name) {
+        if (name.length() != nameLength) return false;
+        for (int i = 0; i < nameLength; i++) {
+            if (at(nameStart + i) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the last decoded account record is the END_OF_FILE trailer
+     */
+    public boolean isEndOfFile() {
+        return nameEquals("END_OF_FILE");
+    }
+
+    /**
+     * @return the trimmed holder name of the last decoded record
+     */
+    public String getName() {
+        if (text != null) return text.subSequence(nameStart, nameStart + nameLength).toString();
+        if (array != null) return new String(array, nameStart, nameLength, StandardCharsets.US_ASCII);
+        byte[] bytes = new byte[nameLength];
+        for (int i = 0; i < nameLength; i++) bytes[i] = buffer.get(nameStart + i);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void source(ByteBuffer buffer, byte[] array, CharSequence text, int limit) {
+        this.buffer = buffer;
+        this.array = array;
+        this.text = text;
+        this.sourceLimit = limit;
+    }
+
+    // character i of the source; the only place the kind of source matters
+    private int at(int i) {
+        if (array != null) return array[i];
+        if (buffer != null) return buffer.get(i);
+        return text.charAt(i);
+    }
+
+    private boolean decodeAccount(int index) {
+        if (!isAscii(index, 37)) return false;
+
+        id = parseNumber(index, 5);
+        if (id < 0) return false;
+        name(index + 6);
+
+        char s = (char) at(index + 27);
+        status = (s == 'A' || s == 'D') ? s : 'A';
+
+        cents = parseMoney(index + 29);
+        return cents >= 0;
+    }
+
+    private boolean decodeTransaction(int index) {
+        if (!isAscii(index, 40)) return false;
+
+        code = parseNumber(index, 2);
+        if (code < 0) return false;
+        name(index + 3);
+
+        id = parseNumber(index + 24, 5);
+        if (id < 0) return false;
+
+        cents = parseMoney(index + 30);
+        misc0 = (char) at(index + 38);
+        misc1 = (char) at(index + 39);
+        return cents >= 0;
+    }
+
+    // locates the trimmed 20-character name field starting at index
+    private void name(int index) {
+        int start = index;
+        int end = index + 20;
+        while (start < end && at(start) <= ' ') start++;
+        while (end > start && at(end - 1) <= ' ') end--;
+        nameStart = start;
+        nameLength = end - start;
+    }
+
+    // parses a blank-padded unsigned number field; blank fields are 0 like
+    // FixedFmt.acct5, anything else that is not digits gives -1
+    private int parseNumber(int index, int width) {
+        int start = index;
+        int end = index + width;
+        while (start < end && at(start) <= ' ') start++;
+        while (end > start && at(end - 1) <= ' ') end--;
+
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            int d = at(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            n = n * 10 + d;
+        }
+        return n;
+    }
+
+    // parses an 8-character money field of the form digits[.d[d]] into cents;
+    // a blank field is 0 like the String parser, anything else gives -1
+    private long parseMoney(int index) {
+        int start = index;
+        int end = index + 8;
+        while (start < end && at(start) <= ' ') start++;
+        while (end > start && at(end - 1) <= ' ') end--;
+
+        long whole = 0;
+        int digits = 0;
+        int i = start;
+        for (; i < end && at(i) != '.'; i++) {
+            int d = at(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            whole = whole * 10 + d;
+            digits++;
+        }
+
+        long frac = 0;
+        int fracDigits = 0;
+        if (i < end) { // skip '.'
+            for (i++; i < end; i++) {
+                int d = at(i) - '0';
+                if (d < 0 || d > 9 || fracDigits == 2) return -1;
+                frac = frac * 10 + d;
+                fracDigits++;
+            }
+        }
+        if (fracDigits == 1) frac *= 10;
+        if (digits + fracDigits == 0 && end > start) return -1; // a lone '.'
+        return whole * 100 + frac;
+    }
+
+    // bytes are ASCII when non-negative, chars when below 128
+    private boolean isAscii(int index, int length) {
+        if (index + length > sourceLimit) return false;
+        for (int i = index; i < index + length; i++) {
+            int c = at(i);
+            if (c < 0 || c > 127) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * FixedRecordValidator.java
+ - Checks in bulk that a fixed-width accounts or transactions file is well formed
+   before it is trusted: numeric fields hold digits, names hold no control
+   characters, the status is A or D and money fields look like DDDDD.DD.
+ - Records are found by their '\n' (or "\r\n") terminator rather than by a
+   fixed stride: a holder name outside ASCII is written in the platform
+   charset and takes more than 20 bytes, so only the fields before and after
+   the name sit at fixed byte offsets within a line.
+ - Files are memory mapped window by window, so they may be larger than 2 GB.
+   A line cut by the end of a window is checked again from its start in the
+   next one, and a bad line is reported on its own without affecting the
+   lines around it.
+ - Fields are checked eight bytes at a time: each record field is read as a
+   long and all of its byte lanes are tested with a few additions and masks
+   (SWAR) instead of one comparison per character; line ends are searched
+   for the same way.
+ */
+public class FixedRecordValidator {
+    public static final int ACCOUNT_RECORD = 37;     // NNNNN_AAAAAAAAAAAAAAAAAAAA_S_DDDDD.DD
+    public static final int TRANSACTION_RECORD = 40; // CC_AAAAAAAAAAAAAAAAAAAA_NNNNN_DDDDD.DDMM
+
+    private static final int NAME_CHARS = 20;
+    private static final int MAX_NAME_BYTES = NAME_CHARS * 4; // 20 characters in any charset the files use
+
+    private static final int MAX_REPORTED = 1000;           // invalid offsets kept in a Result
+    private static final long WINDOW_RECORDS = 1L << 20;    // records mapped at a time
+
+    // one 0x80 marker per byte lane; lane 0 is the first byte of a big-endian getLong
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long LANES_0_TO_4 = 0x8080808080000000L;
+    private static final long LANES_0_TO_1 = 0x8080000000000000L;
+    private static final long MONEY_DIGITS = 0x8080808080008080L; // DDDDD.DD
+    private static final long MONEY_POINT = 0x0000000000FF0000L;  // the '.' lane
+    private static final long POINTS = 0x2E2E2E2E2E2E2E2EL;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+    /**
+     * Outcome of a validation run
+     */
+    public static final class Result {
+        private final long recordCount;
+        private final long invalidCount;
+        private final long[] invalidOffsets;
+
+        Result(long recordCount, long invalidCount, long[] invalidOffsets) {
+            this.recordCount = recordCount;
+            this.invalidCount = invalidCount;
+            this.invalidOffsets = invalidOffsets;
+        }
+
+        /** @return number of records checked */
+        public long getRecordCount() { return recordCount; }
+
+        /** @return number of invalid records */
+        public long getInvalidCount() { return invalidCount; }
+
+        /** @return byte offsets of the first (up to 1000) invalid records, in file order */
+        public long[] getInvalidOffsets() { return invalidOffsets.clone(); }
+
+        /** @return true if every record is well formed */
+        public boolean isValid() { return invalidCount == 0; }
+    }
+
+    // field checks for one line [start, end) of a mapped window, terminator excluded
+    private interface RecordCheck {
+        boolean isValid(ByteBuffer buf, int start, int end);
+    }
+
+    /**
+     * Validates an accounts file; records after END_OF_FILE are ignored, and a
+       missing END_OF_FILE record is reported at the end-of-file offset
+     * @param path Path of the accounts file
+     * @return the validation result
+     * @throws IOException if the file cannot be read
+     */
+    public static Result validateAccounts(String path) throws IOException {
+        return validateAccounts(path, windowBytes(ACCOUNT_RECORD));
+    }
+
+    // validateAccounts() mapping windows of the given size, which must hold the longest line
+    static Result validateAccounts(String path, long windowBytes) throws IOException {
+        return validate(path, windowBytes, FixedRecordValidator::isValidAccount, true);
+    }
+
+    /**
+     * Validates a daily transactions file
+     * @param path Path of the transactions file
+     * @return the validation result
+     * @throws IOException if the file cannot be read
+     */
+    public static Result validateTransactions(String path) throws IOException {
+        return validate(path, windowBytes(TRANSACTION_RECORD), FixedRecordValidator::isValidTransaction, false);
+    }
+
+    // bytes mapped at a time: WINDOW_RECORDS of the longest line a record can take
+    private static long windowBytes(int length) {
+        return WINDOW_RECORDS * (length - NAME_CHARS + MAX_NAME_BYTES + 2);
+    }
+
+    private static Result validate(String path, long windowSize, RecordCheck check, boolean accounts) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Collector bad = new Collector();
+
+            long records = 0;
+            boolean endOfFile = false;
+            boolean skipping = false; // inside a line too long for any window; it was reported
+            long pos = 0;
+            while (pos < size) {
+                long windowBytes = Math.min(size - pos, windowSize);
+                boolean lastWindow = pos + windowBytes == size;
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, windowBytes);
+                int limit = (int) windowBytes;
+
+                int i = 0;
+                if (skipping) {
+                    int newline = indexOfNewline(buf, 0, limit);
+                    if (newline < 0) {
+                        pos += limit;
+                        continue;
+                    }
+                    i = newline + 1;
+                    skipping = false;
+                }
+                while (i < limit) {
+                    int newline = indexOfNewline(buf, i, limit);
+                    if (newline < 0 && !lastWindow) break; // the line continues in the next window
+                    int next = newline < 0 ? limit : newline + 1;
+                    int end = newline < 0 ? limit : newline;
+                    if (end > i && buf.get(end - 1) == '\r') end--;
+
+                    records++;
+                    if (!check.isValid(buf, i, end)) {
+                        bad.add(pos + i);
+                    } else if (accounts && isEndOfFile(buf, i)) {
+                        endOfFile = true;
+                        break;
+                    }
+                    i = next;
+                }
+                if (endOfFile || lastWindow) break;
+                if (i == 0) { // no line end in a whole window: report the line and skip the rest of it
+                    records++;
+                    bad.add(pos);
+                    skipping = true;
+                    i = limit;
+                }
+                pos += i; // the next window starts on a line
+            }
+
+            if (accounts && !endOfFile) bad.add(size);
+            return new Result(records, bad.count, bad.offsets());
+        }
+    }
+
+    // index of the first '\n' in [index, limit), or -1; eight bytes at a time, with
+    // the first byte in the low lane so the lowest match found is the first one
+    private static int indexOfNewline(ByteBuffer buf, int index, int limit) {
+        for (; index + 8 <= limit; index += 8) {
+            long v = Long.reverseBytes(buf.getLong(index)) ^ NEWLINES;
+            long found = (v - LOW_BITS) & ~v & HIGH_BITS;
+            if (found != 0) return index + Long.numberOfTrailingZeros(found) / 8;
+        }
+        for (; index < limit; index++) {
+            if (buf.get(index) == '\n') return index;
+        }
+        return -1;
+    }
+
+    // NNNNN_<name>_S_DDDDD.DD : 6 bytes before the name and 11 after it
+    private static boolean isValidAccount(ByteBuffer buf, int start, int end) {
+        int s = end - 11;
+        if (!isNameField(buf, start + 6, s)) return false;
+        byte status = buf.get(s + 1);
+        return allDigits(buf.getLong(start), LANES_0_TO_4)
+                && buf.get(start + 5) == ' '
+                && buf.get(s) == ' '
+                && (status == 'A' || status == 'D')
+                && buf.get(s + 2) == ' '
+                && isMoney(buf.getLong(s + 3));
+    }
+
+    // CC_<name>_NNNNN_DDDDD.DDMM : 3 bytes before the name and 17 after it
+    private static boolean isValidTransaction(ByteBuffer buf, int start, int end) {
+        int s = end - 17;
+        if (!isNameField(buf, start + 3, s)) return false;
+        return allDigits(buf.getLong(start), LANES_0_TO_1)
+                && buf.get(start + 2) == ' '
+                && buf.get(s) == ' '
+                && allDigits(buf.getLong(s + 1), LANES_0_TO_4)
+                && buf.get(s + 6) == ' '
+                && isMoney(buf.getLong(s + 7))
+                && isPrintable(buf.get(s + 15))
+                && isPrintable(buf.get(s + 16));
+    }
+
+    private static boolean isEndOfFile(ByteBuffer buf, int i) {
+        String marker = "END_OF_FILE";
+        for (int k = 0; k < marker.length(); k++) {
+            if (buf.get(i + 6 + k) != marker.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // a name field in [from, to): 20 ASCII bytes, or up to 80 bytes holding some
+    // non-ASCII ones (20 characters in a multi-byte charset); no control bytes either way
+    private static boolean isNameField(ByteBuffer buf, int from, int to) {
+        int bytes = to - from;
+        if (bytes < NAME_CHARS || bytes > MAX_NAME_BYTES) return false;
+        long any = 0;
+        for (int k = from; k + 8 <= to; k += 8) {
+            long v = buf.getLong(k);
+            if (!noControlBytes(v)) return false;
+            any |= v;
+        }
+        long last = buf.getLong(to - 8); // overlaps the loop's last long
+        if (!noControlBytes(last)) return false;
+        any |= last;
+        return bytes == NAME_CHARS || (any & HIGH_BITS) != 0;
+    }
+
+    private static boolean isMoney(long v) {
+        return allDigits(v, MONEY_DIGITS) && ((v ^ POINTS) & MONEY_POINT) == 0;
+    }
+
+    // true if every lane marked in lanes holds '0'..'9'; with the high bits
+    // cleared, adding 0x50 sets a lane's high bit from '0' up and adding 0x46
+    // sets it from ':' up, and no lane can carry into the next; lanes that had
+    // their high bit set (non-ASCII) are rejected by the final ~v
+    private static boolean allDigits(long v, long lanes) {
+        long low = v & ~HIGH_BITS;
+        long atLeastZero = low + 0x5050505050505050L;
+        long aboveNine = low + 0x4646464646464646L;
+        long digits = atLeastZero & ~aboveNine & ~v & HIGH_BITS;
+        return (digits & lanes) == lanes;
+    }
+
+    // true if no lane holds a control byte (below ' ', or DEL); lanes with their high
+    // bit set are bytes of non-ASCII characters and pass. With the high bits
+    // cleared, adding 0x60 sets a lane's high bit from ' ' up, and adding 0x01
+    // sets it only for DEL
+    private static boolean noControlBytes(long v) {
+        long low = v & ~HIGH_BITS;
+        long atLeastSpace = low + 0x6060606060606060L;
+        long delete = low + LOW_BITS;
+        return ((v | (atLeastSpace & ~delete)) & HIGH_BITS) == HIGH_BITS;
+    }
+
+    private static boolean isPrintable(byte b) {
+        return b >= ' ' && b <= '~';
+    }
+
+    // counts invalid records and keeps the first offsets
+    private static final class Collector {
+        private long[] offsets = new long[16];
+        private int kept = 0;
+        private long count = 0;
+
+        void add(long offset) {
+            count++;
+            if (kept == MAX_REPORTED) return;
+            if (kept == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[kept++] = offset;
+        }
+
+        long[] offsets() {
+            return Arrays.copyOf(offsets, kept);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * HolderNames.java
+ - Compares account holder names ignoring case, the same way as
+   String.equalsIgnoreCase on the trimmed names.
+ - fold() builds the case-folded key of a name. Callers that check the same
+   holder repeatedly, like a session, can fold the name once and pass the
+   key; folding an already folded key does not allocate.
+ - sameHolder() compares an account's name with a name or key without
+   allocating.
+ */
+public class HolderNames {
+    /**
+     * Builds the case-folded key for a holder name
+     * @param name Holder name, may be null
+     * @return the trimmed name with every character folded, "" for null
+     */
+    public static String fold(String name) {
+        if (name == null) return "";
+        String s = name.trim();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (foldChar(c) != c) return foldFrom(s, i);
+        }
+        return s;
+    }
+
+    /**
+     * Compares two holder names ignoring case, without allocating
+     * @param name       Holder name, may be null
+     * @param holderName Holder name or an already folded key, may be null
+     * @return true if both fold to the same key
+     */
+    public static boolean sameHolder(String name, String holderName) {
+        String a = name == null ? "" : name;
+        String b = holderName == null ? "" : holderName;
+        int aStart = 0, aEnd = a.length();
+        int bStart = 0, bEnd = b.length();
+        while (aStart < aEnd && a.charAt(aStart) <= ' ') aStart++;
+        while (aEnd > aStart && a.charAt(aEnd - 1) <= ' ') aEnd--;
+        while (bStart < bEnd && b.charAt(bStart) <= ' ') bStart++;
+        while (bEnd > bStart && b.charAt(bEnd - 1) <= ' ') bEnd--;
+        if (aEnd - aStart != bEnd - bStart) return false;
+        for (int i = 0; i < aEnd - aStart; i++) {
+            if (foldChar(a.charAt(aStart + i)) != foldChar(b.charAt(bStart + i))) return false;
+        }
+        return true;
+    }
+
+    // folds s from the first character that changes
+    private static String foldFrom(String s, int first) {
+        char[] chars = s.toCharArray();
+        for (int i = first; i < chars.length; i++) chars[i] = foldChar(chars[i]);
+        return new String(chars);
+    }
+
+    // two chars are equal ignoring case exactly when their folded forms are equal
+    private static char foldChar(char c) {
+        if (c < 128) return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MappedTransactionLogWriter.java
+ - Writes transaction records into fixed-size log segments that are
+   preallocated and memory mapped, so appending a record is a bounds check
+   and a bulk put into the mapping, with no write() call.
+ - The records are in the page cache as soon as they are put, so flush()
+   does nothing; force() forces only the part of the mapping written since
+   the last force.
+ - The next segment can be prepared ahead of time: its file is created,
+   mapped and every page touched on a background thread, so neither the
+   record that opens a segment nor the first records after a roll pay for
+   page faults and block allocation.
+ - close() truncates the file to the records written, so a closed segment
+   looks like any other log file. A segment left at full size by a crash
+   ends at its last non-zero byte.
+ */
+public class MappedTransactionLogWriter implements TransactionLogOutput {
+    private static final int PAGE_BYTES = 4096;
+
+    private final int segmentBytes;   // size every segment is mapped with
+    private FileChannel channel;      // open segment, or null
+    private MappedByteBuffer mapping; // the open segment; position is the end of the records
+    private int forced;               // bytes before this offset have been forced
+    private final byte[] scratch = new byte[TransactionLogWriter.MAX_RECORD_BYTES]; // one encoded record
+
+    // the segment being prepared ahead of time, or null; the future gives null
+    // if the file already had data or could not be prepared
+    private Path preparedPath;
+    private Future<Prepared> prepared;
+    private ThreadPoolExecutor preparer; // created by the first prepare()
+
+    // a created, mapped and touched segment file
+    private static final class Prepared {
+        final FileChannel channel;
+        final MappedByteBuffer mapping;
+
+        Prepared(FileChannel channel, MappedByteBuffer mapping) {
+            this.channel = channel;
+            this.mapping = mapping;
+        }
+    }
+
+    /**
+     * Constructs a writer
+     * @param segmentBytes Size of each segment; at least one record and below 2 GB
+     */
+    public MappedTransactionLogWriter(long segmentBytes) {
+        if (segmentBytes < TransactionLogWriter.MAX_RECORD_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must hold a record and be below 2 GB.");
+        }
+        this.segmentBytes = (int) segmentBytes;
+    }
+
+    @Override
+    public void open(Path path, boolean append) throws IOException {
+        close();
+        Prepared p = path.equals(preparedPath) ? takePrepared() : null;
+        if (p != null) {
+            channel = p.channel;
+            mapping = p.mapping;
+        } else {
+            channel = append
+                    ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+            long size = channel.size();
+            if (size > segmentBytes) {
+                channel.close();
+                channel = null;
+                throw new IOException("Transaction log segment is larger than the segment size.");
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            mapping.position(endOfRecords(mapping, (int) size));
+        }
+        forced = mapping.position();
+    }
+
+    /**
+     * Starts creating, mapping and touching every page of the segment that will be
+       opened next, on a background thread; a file that already exists with data is
+       left alone and opened as usual, and so is one that could not be prepared
+     * @param path File of the next segment
+     * @throws IOException if a segment prepared for another path cannot be discarded
+     */
+    public void prepare(Path path) throws IOException {
+        if (path.equals(preparedPath)) return;
+        discardPrepared();
+
+        if (preparer == null) {
+            // a single daemon thread that exits when idle; a prepared segment
+            // that is never opened holds no records and is deleted on recovery
+            preparer = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "transaction-log-prepare");
+                t.setDaemon(true);
+                return t;
+            });
+            preparer.allowCoreThreadTimeOut(true);
+        }
+        int bytes = segmentBytes;
+        preparedPath = path;
+        prepared = preparer.submit(() -> prepareFile(path, bytes));
+    }
+
+    /**
+     * Deletes the segment prepared ahead of time, if any, waiting for its preparation to finish
+     * @throws IOException if the file cannot be closed or deleted
+     */
+    public void discardPrepared() throws IOException {
+        if (preparedPath == null) return;
+        Path path = preparedPath;
+        Prepared p = takePrepared();
+        if (p == null) return; // the file had data of its own, or was never created
+        try {
+            p.channel.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // waits for the segment being prepared and forgets it
+    private Prepared takePrepared() {
+        Future<Prepared> f = prepared;
+        preparedPath = null;
+        prepared = null;
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+        // the task may still finish later; its file then holds no records and is deleted on recovery
+        return null;
+    }
+
+    // runs on the preparer thread: creates, maps and touches the file, or returns null
+    private static Prepared prepareFile(Path path, int segmentBytes) throws IOException {
+        if (Files.exists(path) && Files.size(path) > 0) return null;
+
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            for (int i = 0; i < segmentBytes; i += PAGE_BYTES) m.put(i, (byte) 0);
+            return new Prepared(ch, m);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    @Override
+    public int append(TransactionRecord record, long sequence) throws IOException {
+        if (mapping == null) throw new IOException("Transaction log is not open.");
+
+        int end = record.encodeFixed40(scratch, 0);
+        System.arraycopy(TransactionLogWriter.LINE_SEPARATOR, 0, scratch, end, TransactionLogWriter.LINE_SEPARATOR.length);
+        int length = end + TransactionLogWriter.LINE_SEPARATOR.length;
+        if (mapping.remaining() < length) throw new IOException("Transaction log segment is full.");
+        mapping.put(scratch, 0, length);
+        return length;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        return scratch.length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (mapping == null) throw new IOException("Transaction log is not open.");
+    }
+
+    @Override
+    public void force() throws IOException {
+        flush();
+        int end = mapping.position();
+        if (end > forced) mapping.force(forced, end - forced);
+        forced = end;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * Truncates the segment to the records written and closes it; a prepared segment is kept
+     * @throws IOException if the file cannot be truncated or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            channel.truncate(mapping.position());
+        } finally {
+            channel.close();
+            channel = null;
+            mapping = null;
+        }
+    }
+
+    // end of the records in a segment of the given size; a full-size segment
+    // may still hold unused preallocated space after them
+    private static int endOfRecords(MappedByteBuffer m, int size) {
+        int end = size;
+        while (end > 0 && m.get(end - 1) == 0) end--;
+        return end;
+    }
+}
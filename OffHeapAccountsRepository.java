@@ -0,0 +1,232 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * OffHeapAccountsRepository.java
+ - Implements account persistence using the fixed-width text file format,
+   keeping the accounts themselves in a direct (off-heap) buffer.
+ - The buffer holds one fixed-size slot per possible 5-digit account ID, so
+   the Java heap holds no per-account objects and its size does not grow
+   with the number of accounts.
+ - Slot layout (72 bytes):
+     byte  0     : flags (bit 0 present, bit 1 disabled, bit 2 NP plan)
+     byte  1     : holder name length in bytes
+     bytes 2-61  : holder name in UTF-8; 20 characters take at most 60 bytes
+     bytes 64-71 : balance in cents
+ - get() returns a lightweight Account view that reads and writes the slot
+   directly; views are cheap to create and hold no account state of their own.
+ */
+
+public class OffHeapAccountsRepository implements AccountsRepository {
+    // account ids are 5 digits
+    private static final int MAX_ACCOUNTS = 100000;
+
+    private static final int SLOT_BYTES = 72;
+    private static final int FLAGS = 0;
+    private static final int NAME_LENGTH = 1;
+    private static final int NAME = 2;
+    private static final int NAME_BYTES = 60; // 20 chars of UTF-8, so a name is never cut
+    private static final int CENTS = 64;
+
+    private static final int FLAG_PRESENT = 0x01;
+    private static final int FLAG_DISABLED = 0x02;
+    private static final int FLAG_NP_PLAN = 0x04;
+
+    private final String accountsFilePath;
+    private final ByteBuffer table = ByteBuffer.allocateDirect(MAX_ACCOUNTS * SLOT_BYTES);
+    private final AccountIdAllocator ids = new AccountIdAllocator(); // rebuilt by add() during load()
+
+    public OffHeapAccountsRepository(String filename) {
+        this.accountsFilePath = filename;
+    }
+
+    // loads account data from persistent storage
+    @Override
+    public void load() {
+        clear();
+        ids.reset();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(accountsFilePath))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = FileAccountsRepository.parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if ("END_OF_FILE".equals(acc.getName())) break;
+                add(acc);
+            }
+        } catch (IOException ignored) {
+            // start empty if file missing/unreadable
+        }
+    }
+
+    // writes account data to persistent storage, in id order without sorting
+    @Override
+    public void save() {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(accountsFilePath))) {
+            for (int n = 0; n < MAX_ACCOUNTS; n++) {
+                if (!isPresent(n)) continue;
+                writer.println(FileAccountsRepository.formatRecord(new AccountView(String.format("%05d", n), n)));
+            }
+
+            // END_OF_FILE record
+            writer.println(FileAccountsRepository.formatRecord(
+                    Account.ofCents("00000", "END_OF_FILE", 'A', 0, "SP")));
+        } catch (IOException ignored) {
+        }
+    }
+
+    // determines whether an account exists
+    @Override
+    public boolean exists(String accountId) {
+        int n = slotOf(accountId);
+        return n >= 0 && isPresent(n);
+    }
+
+    // retrieves a view of an account by identifier
+    @Override
+    public Account get(String accountId) {
+        int n = slotOf(accountId);
+        if (n < 0 || !isPresent(n)) throw new IllegalArgumentException("Account does not exist.");
+        return new AccountView(FixedFmt.acct5(accountId), n);
+    }
+
+    // determines whether an account exists, indexing directly by the typed id
+    @Override
+    public boolean exists(AccountId accountId) {
+        return accountId != null && isPresent(accountId.intValue());
+    }
+
+    // retrieves a view of an account by typed identifier
+    @Override
+    public Account get(AccountId accountId) {
+        if (accountId == null || !isPresent(accountId.intValue())) {
+            throw new IllegalArgumentException("Account does not exist.");
+        }
+        return new AccountView(accountId.toString(), accountId.intValue());
+    }
+
+    // copies a new account into its slot
+    @Override
+    public void add(Account account) {
+        int n = slotOf(account.getId());
+        if (n < 0) throw new IllegalArgumentException("Invalid account number.");
+
+        int base = n * SLOT_BYTES;
+        byte[] name = FixedFmt.alpha20(account.getName()).trim().getBytes(StandardCharsets.UTF_8);
+        int len = name.length; // at most NAME_BYTES: 3 bytes per char, or 4 per surrogate pair
+
+        int flags = FLAG_PRESENT;
+        if (account.isDisabled()) flags |= FLAG_DISABLED;
+        if ("NP".equals(account.getPlan())) flags |= FLAG_NP_PLAN;
+
+        table.put(base + FLAGS, (byte) flags);
+        table.put(base + NAME_LENGTH, (byte) len);
+        for (int i = 0; i < len; i++) table.put(base + NAME + i, name[i]);
+        table.putLong(base + CENTS, account.getBalanceCents());
+        ids.markUsed(n);
+    }
+
+    // removes an account from storage
+    @Override
+    public void remove(String accountId) {
+        int n = slotOf(accountId);
+        if (n >= 0) removeAt(n);
+    }
+
+    // removes an account by typed identifier
+    @Override
+    public void remove(AccountId accountId) {
+        if (accountId != null) removeAt(accountId.intValue());
+    }
+
+    private void removeAt(int n) {
+        if (!isPresent(n)) return;
+        table.put(n * SLOT_BYTES + FLAGS, (byte) 0);
+        ids.release(n);
+    }
+
+    // reserves the lowest free account identifier; ids of removed accounts are reused
+    @Override
+    public String nextAccountId() {
+        return FixedFmt.acct5(ids.allocate());
+    }
+
+    // marks every slot empty
+    private void clear() {
+        for (int n = 0; n < MAX_ACCOUNTS; n++) table.put(n * SLOT_BYTES + FLAGS, (byte) 0);
+    }
+
+    private boolean isPresent(int n) {
+        return (table.get(n * SLOT_BYTES + FLAGS) & FLAG_PRESENT) != 0;
+    }
+
+    // slot index of an account id, or -1 if the id is outside the 5-digit range
+    private static int slotOf(String accountId) {
+        try {
+            int n = Integer.parseInt(accountId.trim());
+            return n >= 0 && n < MAX_ACCOUNTS ? n : -1;
+        } catch (NumberFormatException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    // an Account whose state lives in one slot of the off-heap table
+    private final class AccountView extends Account {
+        private final int base;
+
+        AccountView(String id, int slot) {
+            super(id, null, 'A', 0.0, "SP");
+            this.base = slot * SLOT_BYTES;
+        }
+
+        private int flags() { return table.get(base + FLAGS); }
+
+        private void setFlag(int flag, boolean on) {
+            int flags = on ? flags() | flag : flags() & ~flag;
+            table.put(base + FLAGS, (byte) flags);
+        }
+
+        @Override
+        public String getName() {
+            byte[] name = new byte[table.get(base + NAME_LENGTH)];
+            for (int i = 0; i < name.length; i++) name[i] = table.get(base + NAME + i);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public char getStatus() { return (flags() & FLAG_DISABLED) != 0 ? 'D' : 'A'; }
+
+        @Override
+        public String getPlan() { return (flags() & FLAG_NP_PLAN) != 0 ? "NP" : "SP"; }
+
+        @Override
+        public long getBalanceCents() { return table.getLong(base + CENTS); }
+
+        @Override
+        public boolean isDisabled() { return (flags() & FLAG_DISABLED) != 0; }
+
+        @Override
+        public void setStatus(char status) { setFlag(FLAG_DISABLED, status == 'D'); }
+
+        @Override
+        public void setPlan(String plan) { setFlag(FLAG_NP_PLAN, "NP".equals(plan)); }
+
+        @Override
+        public void creditCents(long cents) {
+            table.putLong(base + CENTS, getBalanceCents() + cents);
+        }
+
+        @Override
+        public void debitCents(long cents) {
+            if (cents < 0) throw new IllegalArgumentException("Amount must be non-negative.");
+            if (cents > getBalanceCents()) throw new IllegalArgumentException("Insufficient funds.");
+            table.putLong(base + CENTS, getBalanceCents() - cents);
+        }
+    }
+}
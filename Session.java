@@ -8,16 +8,19 @@ public class Session {
     private boolean loggedIn = false;
     private boolean admin = false;
     private String holderName = null;
+    private String holderKey = null; // case-folded holder name, see HolderNames.fold()
 
-    private double totalWithdraw = 0.0;
-    private double totalTransfer = 0.0;
-    private double totalPaybill = 0.0;
+    // session totals in cents
+    private long totalWithdrawCents = 0;
+    private long totalTransferCents = 0;
+    private long totalPaybillCents = 0;
 
     // starts a standard user session for the specified account holder
     public void loginStandard(String holderName) {
         this.loggedIn = true;
         this.admin = false;
         this.holderName = holderName;
+        this.holderKey = HolderNames.fold(holderName);
         resetTotals();
     }
 
@@ -26,6 +29,7 @@ public class Session {
         this.loggedIn = true;
         this.admin = true;
         this.holderName = null;
+        this.holderKey = null;
         resetTotals();
     }
 
@@ -34,6 +38,7 @@ public class Session {
         this.loggedIn = false;
         this.admin = false;
         this.holderName = null;
+        this.holderKey = null;
         resetTotals();
     }
 
@@ -43,25 +48,27 @@ public class Session {
     public boolean isAdmin() { return admin; }
     // returns the account holder name associated with the session.
     public String getHolderName() { return holderName; }
+    // returns the case-folded holder name, computed once at login
+    public String getHolderKey() { return holderKey; }
 
     // transaction tracking:
-    // tracks the total withdrawal amount for the current session
-    public void addWithdraw(double amt) { totalWithdraw += amt; }
-    // tracks the total transfer amount for the current session
-    public void addTransfer(double amt) { totalTransfer += amt; }
-    // tracks the total bill payment for the current session.
-    public void addPaybill(double amt) { totalPaybill += amt; }
+    // tracks the total withdrawal amount (in cents) for the current session
+    public void addWithdrawCents(long cents) { totalWithdrawCents += cents; }
+    // tracks the total transfer amount (in cents) for the current session
+    public void addTransferCents(long cents) { totalTransferCents += cents; }
+    // tracks the total bill payment (in cents) for the current session.
+    public void addPaybillCents(long cents) { totalPaybillCents += cents; }
 
-    // returns the total amount of transaction for the current session
-    public double getTotalWithdraw() { return totalWithdraw; }
-    public double getTotalTransfer() { return totalTransfer; }
-    public double getTotalPaybill() { return totalPaybill; }
+    // returns the total amount of transaction (in cents) for the current session
+    public long getTotalWithdrawCents() { return totalWithdrawCents; }
+    public long getTotalTransferCents() { return totalTransferCents; }
+    public long getTotalPaybillCents() { return totalPaybillCents; }
 
     // resets the transactions, ensuring that transaction limits apply per session, not multiple logins
     private void resetTotals() {
-        totalWithdraw = 0.0;
-        totalTransfer = 0.0;
-        totalPaybill = 0.0;
+        totalWithdrawCents = 0;
+        totalTransferCents = 0;
+        totalPaybillCents = 0;
     }
 }
 
@@ -0,0 +1,232 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ShardedAccountsRepository.java
+ - Implements account persistence over N shard files split by account-id range.
+ - Each shard is an ordinary fixed-width accounts file (37-character records
+   and an END_OF_FILE trailer) managed by its own FileAccountsRepository,
+   named <baseFile>.shard<k>.
+ - load() reads all shards in parallel, and save() writes only the shards
+   that changed, also in parallel.
+ - An optional AccountsJournal is shared by all shards, so the entries of a
+   transfer between accounts in different shards are written as one group
+   and recovered completely or not at all. Each shard replays the entries
+   for its own accounts, and the journal is truncated only once every
+   changed shard file is on disk.
+ */
+
+public class ShardedAccountsRepository implements AccountsRepository {
+    // account ids are 5 digits
+    private static final int MAX_ACCOUNTS = 100000;
+
+    private final FileAccountsRepository[] shards;
+    private final AccountIdAllocator ids = new AccountIdAllocator(); // rebuilt from the shards on load()
+    private AccountsJournal journal; // shared by every shard, may be null
+
+    /**
+     * Constructs a sharded repository
+     * @param baseFilename Base path; shard k is stored in baseFilename + ".shard" + k
+     * @param shardCount   Number of shards the id range 00000-99999 is split into
+     */
+    public ShardedAccountsRepository(String baseFilename, int shardCount) {
+        if (shardCount < 1 || shardCount > MAX_ACCOUNTS) throw new IllegalArgumentException("Invalid shard count.");
+        this.shards = new FileAccountsRepository[shardCount];
+        for (int k = 0; k < shardCount; k++) {
+            shards[k] = new FileAccountsRepository(baseFilename + ".shard" + k);
+        }
+    }
+
+    /**
+     * @param k Shard index
+     * @return the repository managing shard k
+     */
+    public FileAccountsRepository getShard(int k) {
+        return shards[k];
+    }
+
+    /**
+     * Attaches one write-ahead journal to all shards; while it is attached,
+       shards save on the calling thread (still in parallel with each other)
+       so the journal is truncated only once all their files are on disk
+     * @param journal Journal to record changes in, or null to disable journaling
+     */
+    public void setJournal(AccountsJournal journal) {
+        this.journal = journal;
+        for (FileAccountsRepository shard : shards) shard.setSharedJournal(journal);
+    }
+
+    // loads every shard on its own thread, each replaying its part of the journal
+    @Override
+    public void load() {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (FileAccountsRepository shard : shards) {
+            tasks.add(() -> {
+                shard.load();
+                if (journal != null) shard.replaySharedJournal(id -> shardFor(id) == shard);
+                return null;
+            });
+        }
+        runAll(tasks);
+        rebuildIds();
+    }
+
+    // marks every account number in use in any shard
+    private void rebuildIds() {
+        ids.reset();
+        for (int n = 1; n < MAX_ACCOUNTS; n++) {
+            if (shardFor(n).isIdUsed(n)) ids.markUsed(n);
+        }
+    }
+
+    // saves every modified shard on its own thread, then truncates the journal
+    // if every shard was written; entries appended meanwhile are kept
+    @Override
+    public void save() {
+        AccountsJournal journal = this.journal;
+        long mark = journal == null ? 0 : journal.entryCount();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (FileAccountsRepository shard : shards) {
+            if (!shard.isModified()) continue;
+            tasks.add(() -> {
+                shard.save();
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        if (journal == null) return;
+        for (FileAccountsRepository shard : shards) {
+            if (shard.isModified()) return; // its save failed; the journal still holds its changes
+        }
+        journal.truncateIfUnchanged(mark);
+    }
+
+    /**
+     * Distributes the records of a single fixed-width accounts file over the
+       shards; the shard files are written on the next save()
+     * @param accountsFilePath Path of the accounts file to split
+     * @throws IOException if the accounts file cannot be read
+     */
+    public void importFile(String accountsFilePath) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(accountsFilePath))) {
+            FixedRecordDecoder decoder = new FixedRecordDecoder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Account acc = FileAccountsRepository.parseRecord(line, decoder);
+                if (acc == null) continue; // tolerate bad lines
+                if ("END_OF_FILE".equals(acc.getName())) break;
+                add(acc);
+            }
+        }
+    }
+
+    // determines whether an account exists
+    @Override
+    public boolean exists(String accountId) {
+        return shardFor(accountId).exists(accountId);
+    }
+
+    // retrieves an account by identifier
+    @Override
+    public Account get(String accountId) {
+        return shardFor(accountId).get(accountId);
+    }
+
+    // determines whether an account exists, routing by the numeric id
+    @Override
+    public boolean exists(AccountId accountId) {
+        return accountId != null && shardFor(accountId.intValue()).exists(accountId);
+    }
+
+    // retrieves an account by typed identifier
+    @Override
+    public Account get(AccountId accountId) {
+        if (accountId == null) throw new IllegalArgumentException("Account does not exist.");
+        return shardFor(accountId.intValue()).get(accountId);
+    }
+
+    // adds a new account to the shard owning its id
+    @Override
+    public void add(Account account) {
+        shardFor(account.getId()).add(account);
+        AccountId n = AccountId.parse(account.getId());
+        if (n != null) ids.markUsed(n.intValue());
+    }
+
+    // removes an account from storage
+    @Override
+    public void remove(String accountId) {
+        remove(AccountId.parse(accountId));
+    }
+
+    // removes an account by typed identifier
+    @Override
+    public void remove(AccountId accountId) {
+        if (accountId == null) return;
+        FileAccountsRepository shard = shardFor(accountId.intValue());
+        if (!shard.exists(accountId)) return;
+        shard.remove(accountId);
+        ids.release(accountId.intValue());
+    }
+
+    // groups changes in all shards into one group of the shared journal
+    @Override
+    public void beginChanges() {
+        if (journal != null) journal.begin();
+    }
+
+    @Override
+    public void commitChanges() {
+        if (journal != null) journal.commit();
+    }
+
+    // reserves the lowest account identifier free in every shard
+    @Override
+    public String nextAccountId() {
+        return FixedFmt.acct5(ids.allocate());
+    }
+
+    // shard owning the given account id
+    private FileAccountsRepository shardFor(String accountId) {
+        int n = 0;
+        try {
+            n = Integer.parseInt(FixedFmt.acct5(accountId));
+        } catch (NumberFormatException ignored) {
+        }
+        return shardFor(Math.max(0, Math.min(MAX_ACCOUNTS - 1, n)));
+    }
+
+    private FileAccountsRepository shardFor(int n) {
+        return shards[(int) ((long) n * shards.length / MAX_ACCOUNTS)];
+    }
+
+    // runs the tasks on up to one thread per core and waits for all of them
+    private static void runAll(List<Callable<Void>> tasks) {
+        if (tasks.isEmpty()) return;
+
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+ * TransactionLogOutput.java
+ - Defines where TransactionLogger puts encoded transaction records.
+ - TransactionLogWriter writes them through reusable direct buffers and
+   write() calls; MappedTransactionLogWriter puts them straight into a
+   memory-mapped, preallocated segment file; both write the 40-character
+   text form. BinaryTransactionLogWriter writes the compact binary form.
+ */
+
+public interface TransactionLogOutput extends Closeable {
+    /**
+     * Opens the file records are written to, closing any previous one
+     * @param path   File to write
+     * @param append true to add to the end of an existing file, false to replace it
+     * @throws IOException if the file cannot be opened
+     */
+    void open(Path path, boolean append) throws IOException;
+
+    /**
+     * Adds a record after the ones already written
+     * @param record   Record to write
+     * @param sequence Sequence number of the record; the text form does not store it
+     * @return number of bytes the record took in the file
+     * @throws IOException if the record cannot be written
+     */
+    int append(TransactionRecord record, long sequence) throws IOException;
+
+    /**
+     * @return the most bytes a single append() can take
+     */
+    int maxRecordBytes();
+
+    /**
+     * Hands all records appended so far to the operating system
+     * @throws IOException if the records cannot be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * Writes all records appended so far and forces them to the storage device
+     * @throws IOException if the records cannot be written or forced
+     */
+    void force() throws IOException;
+
+    /**
+     * @return true if a file is open
+     */
+    boolean isOpen();
+}
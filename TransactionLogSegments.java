@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TransactionLogSegments.java
+ - Splits a transaction log into numbered segment files next to the log
+   path (transactions.txt.000001, transactions.txt.000002, ...). Each segment
+   holds ordinary fixed-width 40-character records.
+ - A new segment is started when the current one reaches the size limit or
+   has been open longer than the time limit. Both are checked as records are
+   appended, so a segment can outlive its time limit while no records arrive.
+ - Every record gets a sequence number that keeps counting across segments
+   and sessions. The index file (transactions.txt.index) has one line per
+   segment: number, first and last sequence number, and the wall-clock time
+   in milliseconds of its first and last record. Readers use it to open only
+   the segments covering the sequence numbers or time range they need.
+ - A segment is added to the index when it is created, and the index is
+   rewritten when the segment closes and at logout. Numbering resumes from
+   the index when the logger starts; records a crash left in the last
+   segment after the index was written are counted again from the file,
+   and segment files beyond the index are taken into it, so a restarted
+   logger appends after them instead of overwriting them. A record torn by
+   the crash is cut off the segment the logger appends to.
+ */
+public class TransactionLogSegments {
+    /**
+     * One segment of the log, as recorded in the index
+     */
+    public static final class Segment {
+        private final Path path;
+        private final int number;
+        private final long firstSequence;
+        private long lastSequence;
+        private final long firstMillis;
+        private long lastMillis;
+        private long byteCount;
+
+        Segment(Path path, int number, long firstSequence, long lastSequence, long firstMillis, long lastMillis, long byteCount) {
+            this.path = path;
+            this.number = number;
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+            this.firstMillis = firstMillis;
+            this.lastMillis = lastMillis;
+            this.byteCount = byteCount;
+        }
+
+        /** @return path of the segment file */
+        public Path getPath() { return path; }
+
+        /** @return segment number, starting at 1 */
+        public int getNumber() { return number; }
+
+        /** @return sequence number of the first record */
+        public long getFirstSequence() { return firstSequence; }
+
+        /** @return sequence number of the last record */
+        public long getLastSequence() { return lastSequence; }
+
+        /** @return time the first record was appended, in epoch milliseconds */
+        public long getFirstMillis() { return firstMillis; }
+
+        /** @return time the last record was appended, in epoch milliseconds */
+        public long getLastMillis() { return lastMillis; }
+
+        /** @return bytes written to the segment */
+        public long getByteCount() { return byteCount; }
+
+        Segment copy() {
+            return new Segment(path, number, firstSequence, lastSequence, firstMillis, lastMillis, byteCount);
+        }
+    }
+
+    private final String logPath;   // segments and index are named after this path
+    private final long maxBytes;    // roll over once a segment holds this many bytes
+    private final long maxMillis;   // roll over once a segment's first record is this old
+    private final List<Segment> segments = new ArrayList<>(); // in order; the last one is current
+    private boolean currentOpen = false; // records may still be added to the last segment
+    private long nextSequence = 1;
+
+    /**
+     * Constructs the segment list of a log, resuming from its index if there is one
+     * @param logPath   Path of the log; segments and index are named after it
+     * @param maxBytes  Size at which a segment is closed
+     * @param maxMillis Age at which a segment is closed
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public TransactionLogSegments(String logPath, long maxBytes, long maxMillis) {
+        if (maxBytes < 1 || maxMillis < 1) throw new IllegalArgumentException("Segment limits must be positive.");
+        this.logPath = logPath;
+        this.maxBytes = maxBytes;
+        this.maxMillis = maxMillis;
+        try {
+            segments.addAll(readIndex(logPath));
+        } catch (IOException ignored) { // no readable index: start a fresh log
+        }
+        recoverUnindexed();
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            nextSequence = last.lastSequence + 1;
+            currentOpen = true;
+        }
+    }
+
+    /**
+     * Reads the index of a segmented log
+     * @param logPath Path of the log
+     * @return its segments in order, empty if there is no index
+     * @throws IOException if the index exists but cannot be read
+     */
+    public static List<Segment> readIndex(String logPath) throws IOException {
+        Path index = indexPath(logPath);
+        List<Segment> result = new ArrayList<>();
+        if (!Files.exists(index)) return result;
+
+        for (String line : Files.readAllLines(index, StandardCharsets.US_ASCII)) {
+            String[] f = line.trim().split(" +");
+            if (f.length != 6) continue; // irregular line
+            try {
+                int number = Integer.parseInt(f[0]);
+                result.add(new Segment(segmentPath(logPath, number), number, Long.parseLong(f[1]), Long.parseLong(f[2]),
+                        Long.parseLong(f[3]), Long.parseLong(f[4]), Long.parseLong(f[5])));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all segments in order
+     */
+    public synchronized List<Segment> getSegments() {
+        List<Segment> result = new ArrayList<>(segments.size());
+        for (Segment s : segments) result.add(s.copy());
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @param sequence First sequence number wanted
+     * @return the segments holding that sequence number or any later one, in order
+     */
+    public synchronized List<Segment> segmentsFrom(long sequence) {
+        List<Segment> result = new ArrayList<>();
+        for (Segment s : segments) {
+            if (s.lastSequence >= sequence) result.add(s.copy());
+        }
+        return result;
+    }
+
+    /**
+     * @param fromMillis Start of the time range, in epoch milliseconds
+     * @param toMillis   End of the time range, inclusive
+     * @return the segments with records appended in that range, in order
+     */
+    public synchronized List<Segment> segmentsBetween(long fromMillis, long toMillis) {
+        List<Segment> result = new ArrayList<>();
+        for (Segment s : segments) {
+            if (s.lastMillis >= fromMillis && s.firstMillis <= toMillis) result.add(s.copy());
+        }
+        return result;
+    }
+
+    // true if a record of the given size cannot go into the current segment
+    synchronized boolean needsNewSegment(long nowMillis, int recordBytes) {
+        if (!currentOpen) return true;
+        Segment current = segments.get(segments.size() - 1);
+        return current.byteCount + recordBytes > maxBytes || nowMillis - current.firstMillis >= maxMillis;
+    }
+
+    // closes the current segment; the next record starts a new one
+    synchronized void closeSegment() {
+        currentOpen = false;
+    }
+
+    // path of the segment the next record goes into, starting a new segment if needed
+    synchronized Path currentPath(long nowMillis) {
+        if (!currentOpen) {
+            int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+            segments.add(new Segment(segmentPath(logPath, number), number, nextSequence, nextSequence - 1, nowMillis, nowMillis, 0));
+            currentOpen = true;
+        }
+        return segments.get(segments.size() - 1).path;
+    }
+
+    // path of the segment after the current one
+    synchronized Path nextPath() {
+        int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + (currentOpen ? 1 : 0);
+        return segmentPath(logPath, number);
+    }
+
+    // size at which a segment is closed
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // sequence number the next record will get
+    synchronized long peekSequence() {
+        return nextSequence;
+    }
+
+    // counts a record appended to the current segment and returns its sequence number
+    synchronized long recorded(long nowMillis, int recordBytes) {
+        Segment current = segments.get(segments.size() - 1);
+        current.lastSequence = nextSequence;
+        current.lastMillis = nowMillis;
+        current.byteCount += recordBytes;
+        return nextSequence++;
+    }
+
+    // rewrites the index file, replacing the old one in a single move
+    synchronized void writeIndex() throws IOException {
+        StringBuilder sb = new StringBuilder(segments.size() * 64);
+        for (Segment s : segments) {
+            sb.append(String.format("%06d %d %d %d %d %d", s.number, s.firstSequence, s.lastSequence,
+                    s.firstMillis, s.lastMillis, s.byteCount)).append(System.lineSeparator());
+        }
+        Path index = indexPath(logPath);
+        Path temp = Paths.get(index + ".tmp");
+        Files.write(temp, sb.toString().getBytes(StandardCharsets.US_ASCII));
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // brings the last indexed segment and any segment files after it up to date
+    // with the records they hold; the index is rewritten with the next segment change
+    private void recoverUnindexed() {
+        Segment tail = null; // the segment appended to next, as found in its file
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            tail = recount(last.path, last.number, last.firstSequence, last.firstMillis);
+            if (tail != null && tail.lastSequence > last.lastSequence) segments.set(segments.size() - 1, tail);
+        }
+        int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+        for (Path path = segmentPath(logPath, number); Files.exists(path); path = segmentPath(logPath, ++number)) {
+            long first = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).lastSequence + 1;
+            Segment found = recount(path, number, first, -1);
+            if (found == null) break;
+            if (found.lastSequence < first) { // created or prepared ahead, but never written
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+                break;
+            }
+            segments.add(found);
+            tail = found;
+        }
+        if (tail != null) truncate(tail.path, tail.byteCount);
+    }
+
+    // cuts a record torn by a crash off the end of a segment, so the records
+    // appended after it start on a record boundary
+    private static void truncate(Path path, long bytes) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > bytes) channel.truncate(bytes);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // the segment as found in its file, with the file time as its last record time
+    // (and first, if not known), or null if the file cannot be read
+    private static Segment recount(Path path, int number, long firstSequence, long firstMillis) {
+        try {
+            long millis = Files.getLastModifiedTime(path).toMillis();
+            long[] found = isBinary(path) ? countBinary(path) : countText(path);
+            return new Segment(path, number, firstSequence, firstSequence + found[0] - 1,
+                    firstMillis < 0 ? millis : firstMillis, millis, found[1]);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // binary segments start with the reset entry their writer puts first; text ones with a digit
+    private static boolean isBinary(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == BinaryTransactionLog.RESET;
+        }
+    }
+
+    // complete lines and the bytes up to the last one; a preallocated mapped
+    // segment ends at its first zero byte, and a torn last line is not counted
+    private static long[] countText(Path path) throws IOException {
+        long lines = 0, end = 0, pos = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            for (int b; (b = in.read()) > 0; ) {
+                pos++;
+                if (b == '\n') {
+                    lines++;
+                    end = pos;
+                }
+            }
+        }
+        return new long[] { lines, end };
+    }
+
+    // records that read back whole, and the bytes up to the end of the last one
+    private static long[] countBinary(Path path) throws IOException {
+        long records = 0, end = 0;
+        try (BinaryTransactionLog.Reader reader = BinaryTransactionLog.open(path)) {
+            while (reader.next()) {
+                records++;
+                end = reader.getEndOffset();
+            }
+        } catch (IOException ignored) { // a torn last entry
+        }
+        return new long[] { records, end };
+    }
+
+    private static Path segmentPath(String logPath, int number) {
+        return Paths.get(String.format("%s.%06d", logPath, number));
+    }
+
+    private static Path indexPath(String logPath) {
+        return Paths.get(logPath + ".index");
+    }
+}
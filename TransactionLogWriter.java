@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TransactionLogWriter.java
+ - Writes transaction records to a file in the fixed-width 40-character
+   format, one record per line.
+ - Each record is encoded with TransactionRecord.encodeFixed40() and copied
+   into a set of reusable direct buffers, and the filled buffers are handed
+   to the FileChannel in one gathering write. No String is built per record
+   and no charset encoder is involved, except for the rare record with
+   non-ASCII text, which is longer in the platform charset.
+ - The buffers are allocated once and kept across open()/close() cycles, so
+   a writer can be reused for every session.
+ - Neither flush() nor close() waits for the storage device; force() does.
+ */
+public class TransactionLogWriter implements TransactionLogOutput {
+    static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    static final int RECORD_BYTES = 40 + LINE_SEPARATOR.length; // one ASCII record and its line separator
+    static final int MAX_RECORD_BYTES = TransactionRecord.MAX_FIXED40_BYTES + LINE_SEPARATOR.length;
+
+    private final ByteBuffer[] buffers; // filled in order, written together
+    private int current = 0;            // buffer records are encoded into
+    private FileChannel channel;        // open file, or null
+    private final byte[] scratch = new byte[MAX_RECORD_BYTES]; // one encoded record
+
+    /**
+     * Constructs a writer
+     * @param bufferBytes   Size of each direct buffer; at least one record
+     * @param bufferCount   Number of buffers gathered into one write
+     */
+    public TransactionLogWriter(int bufferBytes, int bufferCount) {
+        if (bufferBytes < MAX_RECORD_BYTES || bufferCount < 1) throw new IllegalArgumentException("Buffer too small.");
+        buffers = new ByteBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++) buffers[i] = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Opens the file records are written to, closing any previous one
+     * @param path   File to write
+     * @param append true to add to the end of an existing file, false to replace it
+     * @throws IOException if the file cannot be opened
+     */
+    @Override
+    public void open(Path path, boolean append) throws IOException {
+        close();
+        channel = append
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Encodes a record into the buffers, writing them out first if they are full
+     * @param record   Record to write
+     * @param sequence Sequence number; not part of the text form
+     * @return the bytes the record takes, with its line separator
+     * @throws IOException if the buffers cannot be written
+     */
+    @Override
+    public int append(TransactionRecord record, long sequence) throws IOException {
+        // encode on the heap and copy in bulk; single-byte puts into a direct buffer are slower
+        int end = record.encodeFixed40(scratch, 0);
+        System.arraycopy(LINE_SEPARATOR, 0, scratch, end, LINE_SEPARATOR.length);
+        int length = end + LINE_SEPARATOR.length;
+
+        ByteBuffer buf = buffers[current];
+        if (buf.remaining() < length) {
+            if (current + 1 == buffers.length) flush();
+            else current++;
+            buf = buffers[current];
+        }
+        buf.put(scratch, 0, length);
+        return length;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        return MAX_RECORD_BYTES;
+    }
+
+    /**
+     * Writes all buffered records to the file in one gathering write
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (channel == null) throw new IOException("Transaction log is not open.");
+        for (int i = 0; i <= current; i++) buffers[i].flip();
+        try {
+            while (buffers[current].hasRemaining()) channel.write(buffers, 0, current + 1);
+        } finally {
+            for (int i = 0; i <= current; i++) buffers[i].clear();
+            current = 0;
+        }
+    }
+
+    /**
+     * Writes all buffered records and forces the file's content to the storage device
+     * @throws IOException if the records cannot be written or forced
+     */
+    @Override
+    public void force() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    /**
+     * @return true if a file is open
+     */
+    @Override
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * Flushes buffered records and closes the file; the buffers are kept for reuse
+     * @throws IOException if the records cannot be written or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+}
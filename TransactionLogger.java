@@ -1,43 +1,533 @@
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * TransactionLogger.java
  * Collects and writes all transaction records generated during a session
    to the daily transactions output file in fixed-width format.
+ * In streaming mode records are not kept until logout: they are encoded as
+   they arrive and written whenever the writer's bounded buffers fill, the
+   file is appended to across sessions, and logout only adds the end of
+   session record.
+ * In async mode the file is written the same way, but by a dedicated writer
+   thread: add() only publishes the record into a lock-free ring buffer, so
+   any number of sessions can log concurrently, and logout waits until the
+   writer has written everything up to its end of session record.
+ * The durability policy decides when written records are forced to disk.
+   In async mode the writer forces each batch it drains with a single
+   force() call, so concurrent sessions waiting on RECORD durability share
+   one fsync (group commit). In streaming mode without the writer thread, a
+   timer forces records left waiting under INTERVAL durability once the
+   interval has passed, so a session that stops logging still gets them to
+   disk. Every force is timed, and the observed fsync latency and the
+   number of write failures are reported by getSyncStats().
+ * In segmented mode records are appended to numbered segment files that
+   roll over by size or age instead of to one file, and each record gets a
+   sequence number; see TransactionLogSegments for the files and the index.
+ * In mapped mode each segment is preallocated at the segment size and
+   memory mapped, and the next one is prepared on a background thread while
+   the current one fills, so appending a record costs no write() call and
+   no page faults; see MappedTransactionLogWriter.
+ * In binary mode records are written in the compact form of
+   BinaryTransactionLog, which converts losslessly to and from the text form.
  */
 
 public class TransactionLogger {
+    // direct buffers reused for every write, gathered into one write() call when full
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int GATHER_BUFFERS = 4;
+
+    // async mode: ring buffer slots, and how long an idle writer sleeps before looking again
+    private static final int RING_CAPACITY = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    /**
+     * When written records are forced to the storage device
+     */
+    public enum Durability {
+        NONE,     // never; the operating system writes them back in its own time
+        INTERVAL, // when the sync interval has passed since the last force
+        BATCH,    // once per batch: each run of records the async writer drains, otherwise each session
+        RECORD    // before add() returns; in async mode waiting sessions share one force
+    }
+
+    /**
+     * Snapshot of the fsync work a logger has done
+     */
+    public static final class SyncStats {
+        private final long syncCount;
+        private final long recordCount;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long failureCount;
+
+        SyncStats(long syncCount, long recordCount, long totalNanos, long maxNanos, long failureCount) {
+            this.syncCount = syncCount;
+            this.recordCount = recordCount;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.failureCount = failureCount;
+        }
+
+        /** @return number of force() calls */
+        public long getSyncCount() { return syncCount; }
+
+        /** @return number of records made durable by those calls */
+        public long getRecordCount() { return recordCount; }
+
+        /** @return total time spent in force(), in nanoseconds */
+        public long getTotalNanos() { return totalNanos; }
+
+        /** @return longest single force(), in nanoseconds */
+        public long getMaxNanos() { return maxNanos; }
+
+        /** @return mean time of a force(), in nanoseconds, or 0 if there was none */
+        public long getAverageNanos() { return syncCount == 0 ? 0 : totalNanos / syncCount; }
+
+        /** @return number of writes or forces that failed with an IOException */
+        public long getFailureCount() { return failureCount; }
+    }
+
+    // End of session record (00)
+    private static final TransactionRecord END_OF_SESSION = new TransactionRecord("00", "", "00000", 0, "");
+
     private final String dailyTransactionsFilePath; // path to daily transactions output file
     private final List<TransactionRecord> records = new ArrayList<>(); // in-memory list of transaction records for current session
+    private TransactionLogOutput writer; // encodes records into the file, created on first write
+    private boolean streaming = false; // write records as they arrive and append across sessions
+
+    // async mode: records published by sessions and the thread writing them, null when off
+    private volatile TransactionRingBuffer ring;
+    private Thread writerThread;
+    private volatile boolean writerRunning;
+    private volatile long writtenSequence; // every record with a lower sequence is written (and forced, if due)
+
+    // durability policy, and the fsync bookkeeping of the thread that appends to the writer
+    private volatile Durability durability = Durability.NONE;
+    private volatile long syncIntervalNanos;
+    private long unsyncedRecords = 0; // appended since the last force
+    private long lastSyncNanos = System.nanoTime();
+
+    // streaming mode: the session thread appends and the INTERVAL timer forces under this lock
+    private final Object streamLock = new Object();
+    private ScheduledExecutorService syncTimer; // started by the first INTERVAL record, or null
+
+    // segmented mode: the segment files and index, null when writing a single file
+    private volatile TransactionLogSegments segments;
+    private long appendMillis; // time of the record being appended; appending thread only
+    private boolean mapped = false; // segments are preallocated and memory mapped
+    private boolean binary = false; // records are written in the binary form
+    private long nextSequence = 1;  // sequence number of the next record when not segmented; appending thread only
+
+    // totals reported by getSyncStats()
+    private final Object statsLock = new Object();
+    private long syncCount, syncedRecords, syncNanos, maxSyncNanos, failures;
 
     // constructs a transaction logger for the given output file
     public TransactionLogger(String dailyTransactionsFilePath) {
         this.dailyTransactionsFilePath = dailyTransactionsFilePath;
     }
 
+    /**
+     * Selects how records reach the file
+     * @param streaming true to write records as they arrive, appending to the file,
+     *                  false to keep them in memory and replace the file at logout
+     */
+    public void setStreaming(boolean streaming) {
+        synchronized (streamLock) {
+            if (this.streaming && !streaming) {
+                stopSyncTimer();
+                closeQuietly();
+            }
+            this.streaming = streaming;
+        }
+    }
+
+    /**
+     * Selects whether records are written by a background thread
+     * @param async true to publish records to a writer thread (appending like streaming mode),
+     *              false to stop the thread once it has written everything published so far;
+     *              switch only while no session is logging
+     */
+    public synchronized void setAsync(boolean async) {
+        if (async == (ring != null)) return;
+        if (async) {
+            writtenSequence = 0;
+            writerRunning = true;
+            ring = new TransactionRingBuffer(RING_CAPACITY);
+            writerThread = new Thread(this::drain, "transaction-log-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+            return;
+        }
+
+        writerRunning = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ring = null;
+        writerThread = null;
+    }
+
+    /**
+     * Selects when written records are forced to disk
+     * @param durability     Policy
+     * @param intervalMillis Longest time between forces for INTERVAL, ignored otherwise
+     * @throws IllegalArgumentException if the policy is null or the interval is not positive
+     */
+    public void setDurability(Durability durability, long intervalMillis) {
+        if (durability == null) throw new IllegalArgumentException("Durability policy is required.");
+        if (durability == Durability.INTERVAL && intervalMillis < 1) throw new IllegalArgumentException("Sync interval must be positive.");
+        synchronized (streamLock) {
+            stopSyncTimer(); // restarted with the new interval by the next INTERVAL record
+            syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(intervalMillis, 0));
+            this.durability = durability;
+        }
+    }
+
+    /**
+     * Selects whether records go to numbered segment files instead of one file;
+       segments are always appended to, and the numbering resumes from the index.
+       Switch only while no session is logging
+     * @param maxSegmentBytes  Size at which a segment is closed, or 0 to write a single file
+     * @param maxSegmentMillis Age at which a segment is closed
+     * @throws IllegalArgumentException if a segment limit is not positive
+     */
+    public void setSegmented(long maxSegmentBytes, long maxSegmentMillis) {
+        if (maxSegmentBytes == 0) {
+            if (mapped) setMapped(false);
+            segments = null;
+            return;
+        }
+        if (maxSegmentBytes < TransactionLogWriter.MAX_RECORD_BYTES) throw new IllegalArgumentException("Segment size must hold a record.");
+        if (mapped && maxSegmentBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Mapped segments must be below 2 GB.");
+        segments = new TransactionLogSegments(dailyTransactionsFilePath, maxSegmentBytes, maxSegmentMillis);
+        if (mapped) dropWriter(); // mapped with the old segment size
+    }
+
+    /**
+     * Selects whether segments are preallocated and memory mapped instead of written
+       with write() calls; switch only while no session is logging
+     * @param mapped true to map segments; the log must be segmented first
+     * @throws IllegalStateException if mapped is true and the log is not segmented
+     * @throws IllegalArgumentException if the segment size is 2 GB or more
+     */
+    public void setMapped(boolean mapped) {
+        if (mapped == this.mapped) return;
+        TransactionLogSegments segments = this.segments;
+        if (mapped && segments == null) throw new IllegalStateException("Mapped mode needs a segmented log.");
+        if (mapped && binary) throw new IllegalStateException("Mapped segments are written as text.");
+        if (mapped && segments.getMaxBytes() > Integer.MAX_VALUE) throw new IllegalArgumentException("Mapped segments must be below 2 GB.");
+        dropWriter();
+        this.mapped = mapped;
+    }
+
+    /**
+     * Selects whether records are written in the binary form of BinaryTransactionLog
+       instead of as 40-character text; switch only while no session is logging
+     * @param binary true to write the binary form
+     * @throws IllegalStateException if binary is true in mapped mode
+     */
+    public void setBinary(boolean binary) {
+        if (binary == this.binary) return;
+        if (binary && mapped) throw new IllegalStateException("Mapped segments are written as text.");
+        dropWriter();
+        this.binary = binary;
+    }
+
+    /**
+     * @return the segments written so far, or null if the logger writes a single file
+     */
+    public TransactionLogSegments getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return fsync counts and latency observed so far, with the number of failed writes
+     */
+    public SyncStats getSyncStats() {
+        synchronized (statsLock) {
+            return new SyncStats(syncCount, syncedRecords, syncNanos, maxSyncNanos, failures);
+        }
+    }
+
     // Records a transaction during a session.
     public void add(TransactionRecord record) {
-        records.add(record);
+        TransactionRingBuffer ring = this.ring;
+        if (ring != null) {
+            long seq = publish(ring, record);
+            if (durability == Durability.RECORD) awaitWritten(seq);
+            return;
+        }
+
+        if (!streaming) {
+            records.add(record);
+            return;
+        }
+
+        synchronized (streamLock) {
+            try {
+                append(appender(), record);
+            } catch (IOException e) { // Fail silently if the transactions file cannot be written, but count it
+                failed();
+                return;
+            }
+            Durability d = durability;
+            if (d == Durability.RECORD || (d == Durability.INTERVAL && intervalDue())) syncQuietly();
+            if (d == Durability.INTERVAL && syncTimer == null) startSyncTimer();
+        }
     }
 
     // Writes all recorded transactions to file, appends end of session record, then clears log.
     public void writeAndClear() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(dailyTransactionsFilePath, false))) {
-            // Write all transaction records in fixed-width (40-character) format
-            for (TransactionRecord r : records) {
-                pw.println(r.toFixed40());
-            }
-            // End of session record (00)
-            pw.println(new TransactionRecord("00", "", "00000", 0.0, "").toFixed40());
-        } catch (IOException ignored) { // Fail silently if the transactions file cannot be written
+        TransactionRingBuffer ring = this.ring;
+        if (ring != null) {
+            // the writer closes the file after the end of session record
+            awaitWritten(publish(ring, END_OF_SESSION));
+            return;
+        }
+
+        if (streaming) {
+            synchronized (streamLock) {
+                try {
+                    append(appender(), END_OF_SESSION);
+                } catch (IOException e) {
+                    failed();
+                }
+                endSession();
+            }
+            return;
+        }
+
+        try {
+            // a single file is replaced; segments are appended to
+            if (segments == null) writer().open(Paths.get(dailyTransactionsFilePath), false);
+            try {
+                // Write all transaction records in fixed-width (40-character) format
+                for (TransactionRecord r : records) {
+                    append(appender(), r);
+                }
+                append(appender(), END_OF_SESSION);
+            } finally {
+                endSession();
+            }
+        } catch (IOException e) { // Fail silently if the transactions file cannot be written, but count it
+            failed();
         } finally {
             // Clear records regardless of write success
             records.clear();
         }
     }
-}
 
+    // async mode: publishes a record, waiting for the writer to free a slot if the ring is full
+    private long publish(TransactionRingBuffer ring, TransactionRecord record) {
+        long seq;
+        while ((seq = ring.offer(record)) < 0) {
+            LockSupport.unpark(writerThread);
+            Thread.yield();
+        }
+        return seq;
+    }
+
+    // async mode: waits until the writer has written the record with the given sequence
+    private void awaitWritten(long seq) {
+        LockSupport.unpark(writerThread);
+        while (writtenSequence <= seq && writerThread.isAlive()) LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+    }
+
+    // async mode: the writer thread; drains the ring in order, and each time it runs
+    // dry writes the batch drained since the last time, forcing it if the policy says so
+    private void drain() {
+        TransactionRingBuffer ring = this.ring;
+        boolean unflushed = false;
+        while (true) {
+            TransactionRecord record = ring.poll();
+            if (record == null) {
+                if (unflushed) {
+                    Durability d = durability;
+                    if (d == Durability.RECORD || d == Durability.BATCH) syncQuietly();
+                    else flushQuietly();
+                    unflushed = false;
+                    writtenSequence = ring.nextSequence();
+                }
+                if (durability == Durability.INTERVAL && intervalDue()) syncQuietly();
+                if (!writerRunning) break;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            try {
+                append(appender(), record);
+            } catch (IOException e) {
+                failed();
+            }
+            if (record == END_OF_SESSION) {
+                endSession();
+                unflushed = false;
+                writtenSequence = ring.nextSequence();
+            } else {
+                unflushed = true;
+            }
+        }
+        closeQuietly();
+    }
+
+    // appends one record with the next sequence number, counting it towards the next force and in its segment
+    private void append(TransactionLogOutput w, TransactionRecord record) throws IOException {
+        TransactionLogSegments segments = this.segments;
+        int bytes = w.append(record, segments != null ? segments.peekSequence() : nextSequence++);
+        unsyncedRecords++;
+        if (segments != null) segments.recorded(appendMillis, bytes);
+    }
+
+    // streaming INTERVAL: forces records the session left waiting once the interval
+    // has passed, so they do not wait for the next add() when the session goes quiet
+    private void startSyncTimer() {
+        syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "transaction-log-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodNanos = Math.max(syncIntervalNanos / 2, 1);
+        syncTimer.scheduleWithFixedDelay(() -> {
+            synchronized (streamLock) {
+                if (ring == null && intervalDue()) syncQuietly();
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void stopSyncTimer() {
+        if (syncTimer != null) syncTimer.shutdownNow();
+        syncTimer = null;
+    }
+
+    // INTERVAL: true if records are waiting and the interval has passed since the last force
+    private boolean intervalDue() {
+        return unsyncedRecords > 0 && System.nanoTime() - lastSyncNanos >= syncIntervalNanos;
+    }
+
+    // closes the file at logout; every policy but NONE forces what the session wrote first
+    private void endSession() {
+        if (durability != Durability.NONE) syncQuietly();
+        closeQuietly();
+        writeIndexQuietly();
+    }
+
+    // segmented mode: closes a full segment, forcing it like the end of a session
+    private void endSegment(TransactionLogSegments segments) {
+        if (durability != Durability.NONE) syncQuietly();
+        closeQuietly();
+        segments.closeSegment();
+        writeIndexQuietly();
+    }
+
+    private void writeIndexQuietly() {
+        TransactionLogSegments segments = this.segments;
+        if (segments == null) return;
+        try {
+            segments.writeIndex();
+        } catch (IOException e) {
+            failed();
+        }
+    }
+
+    // writes out buffered records and forces them to disk, timing the force
+    private void syncQuietly() {
+        if (writer == null || !writer.isOpen()) return;
+        try {
+            writer.flush();
+            long start = System.nanoTime();
+            writer.force();
+            long end = System.nanoTime();
+            synchronized (statsLock) {
+                syncCount++;
+                syncedRecords += unsyncedRecords;
+                syncNanos += end - start;
+                maxSyncNanos = Math.max(maxSyncNanos, end - start);
+            }
+            unsyncedRecords = 0;
+            lastSyncNanos = end;
+        } catch (IOException e) {
+            failed();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            if (writer != null && writer.isOpen()) writer.flush();
+        } catch (IOException e) {
+            failed();
+        }
+    }
+
+    private void failed() {
+        synchronized (statsLock) {
+            failures++;
+        }
+    }
+
+    // the writer, created on first use
+    private TransactionLogOutput writer() {
+        if (writer == null) {
+            if (mapped) writer = new MappedTransactionLogWriter(segments.getMaxBytes());
+            else if (binary) writer = new BinaryTransactionLogWriter(BUFFER_BYTES * GATHER_BUFFERS);
+            else writer = new TransactionLogWriter(BUFFER_BYTES, GATHER_BUFFERS);
+        }
+        return writer;
+    }
+
+    // closes the writer and forgets it, so the next write creates one for the current mode
+    private void dropWriter() {
+        synchronized (streamLock) {
+            closeQuietly();
+            if (writer instanceof MappedTransactionLogWriter) {
+                try {
+                    ((MappedTransactionLogWriter) writer).discardPrepared();
+                } catch (IOException e) {
+                    failed();
+                }
+            }
+            writer = null;
+        }
+    }
+
+    // the writer, opened for appending on the first record of a session; in segmented
+    // mode it is moved on to a new segment when the current one is full or too old
+    private TransactionLogOutput appender() throws IOException {
+        TransactionLogOutput w = writer();
+        TransactionLogSegments segments = this.segments;
+        if (segments == null) {
+            if (!w.isOpen()) w.open(Paths.get(dailyTransactionsFilePath), true);
+            return w;
+        }
+
+        appendMillis = System.currentTimeMillis();
+        boolean newSegment = segments.needsNewSegment(appendMillis, w.maxRecordBytes());
+        if (newSegment) endSegment(segments);
+        if (!w.isOpen()) {
+            // segments are appended to, so records a crash left in one are kept
+            w.open(segments.currentPath(appendMillis), true);
+            if (newSegment) writeIndexQuietly(); // list the segment before it holds records
+            if (w instanceof MappedTransactionLogWriter) ((MappedTransactionLogWriter) w).prepare(segments.nextPath());
+        }
+        return w;
+    }
+
+    private void closeQuietly() {
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException e) {
+            failed();
+        }
+        unsyncedRecords = 0; // records a failed or skipped force left behind are not carried over
+    }
+}
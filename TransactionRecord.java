@@ -1,13 +1,23 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 /**
  * TransactionRecord.java
  * Represents a single transaction entry that will be written to the
    daily transactions file using a fixed-width (40-character) format.
  */
 public class TransactionRecord {
+    private static final Charset CHARSET = Charset.defaultCharset(); // the transactions file was always written in it
+
+    /**
+     * Most bytes encodeFixed40() writes for one record: 40 characters in the platform charset
+     */
+    public static final int MAX_FIXED40_BYTES = (int) Math.ceil(40 * CHARSET.newEncoder().maxBytesPerChar());
+
     private final String code2;   // Two-character transaction code: "01".."08" or "00"
     private final String name;    // account holder name (20)
     private final String acct5;   // account number (5)
-    private final double amount;  // transaction amount
+    private final long amountCents; // transaction amount in cents
     private final String misc2;   // "EC","CQ","FI" or "NP" etc, or blanks
 
     /**
@@ -15,14 +25,14 @@ public class TransactionRecord {
      * @param code2  Two-character transaction code
      * @param name   Account holder name
      * @param acct5  Account number
-     * @param amount Transaction amount
+     * @param amountCents Transaction amount in cents
      * @param misc2  Miscellaneous two-character field
      */
-    public TransactionRecord(String code2, String name, String acct5, double amount, String misc2) {
+    public TransactionRecord(String code2, String name, String acct5, long amountCents, String misc2) {
         this.code2 = code2;
         this.name = name;
         this.acct5 = acct5;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.misc2 = misc2;
     }
 
@@ -37,10 +47,65 @@ public class TransactionRecord {
                 code2 + " " +
                 FixedFmt.alpha20(name) + " " +
                 FixedFmt.acct5(acct5) + " " +
-                FixedFmt.money8(amount) +
+                FixedFmt.money8Cents(amountCents) +
                 FixedFmt.misc2(misc2);
 
         return FixedFmt.padRight(line, 40);
     }
-}
 
+    /**
+     * Encodes the record as its fixed-width 40-byte form into an array,
+       without allocating; a record with non-ASCII values is encoded from
+       toFixed40() in the platform charset instead and can be longer
+     * @param dst Destination array, with room for MAX_FIXED40_BYTES
+     * @param off Offset of the record in dst
+     * @return the offset just past the record
+     */
+    public int encodeFixed40(byte[] dst, int off) {
+        if (!isAscii()) {
+            byte[] bytes = toFixed40().getBytes(CHARSET);
+            System.arraycopy(bytes, 0, dst, off, bytes.length);
+            return off + bytes.length;
+        }
+
+        off = FixedFmt.putPadRight(dst, off, code2, 2);
+        dst[off++] = ' ';
+        off = FixedFmt.putAlpha20(dst, off, name);
+        dst[off++] = ' ';
+        off = FixedFmt.putAcct5(dst, off, acct5);
+        dst[off++] = ' ';
+        off = FixedFmt.putMoney8Cents(dst, off, amountCents);
+        return FixedFmt.putMisc2(dst, off, misc2);
+    }
+
+    /**
+     * Encodes the record as its fixed-width 40-byte form at an absolute
+       buffer index, without allocating; non-ASCII records as in encodeFixed40(byte[], int)
+     * @param dst   Destination buffer; its position is not changed
+     * @param index Index of the record in dst
+     * @return the index just past the record
+     */
+    public int encodeFixed40(ByteBuffer dst, int index) {
+        if (dst.hasArray()) return encodeFixed40(dst.array(), dst.arrayOffset() + index) - dst.arrayOffset();
+        if (!isAscii()) {
+            byte[] bytes = toFixed40().getBytes(CHARSET);
+            dst.put(index, bytes);
+            return index + bytes.length;
+        }
+
+        dst.put(index, code2.length() > 0 ? (byte) code2.charAt(0) : (byte) ' ');
+        dst.put(index + 1, code2.length() > 1 ? (byte) code2.charAt(1) : (byte) ' ');
+        dst.put(index + 2, (byte) ' ');
+        index = FixedFmt.putAlpha20(dst, index + 3, name);
+        dst.put(index++, (byte) ' ');
+        index = FixedFmt.putAcct5(dst, index, acct5);
+        dst.put(index++, (byte) ' ');
+        index = FixedFmt.putMoney8Cents(dst, index, amountCents);
+        return FixedFmt.putMisc2(dst, index, misc2);
+    }
+
+    // true if every text field encodes to one byte per character
+    private boolean isAscii() {
+        return FixedFmt.isAscii(code2) && FixedFmt.isAscii(name) && FixedFmt.isAscii(misc2);
+    }
+}
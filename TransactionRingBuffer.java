@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * TransactionRingBuffer.java
+ - Bounded, lock-free multi-producer single-consumer queue of transaction
+   records, used to hand records from session threads to a writer thread.
+ - All slots are allocated up front. Each slot carries a sequence number
+   that tells producers when it is free and the consumer when it is
+   published, so offer() is one CAS on the shared tail in the common case
+   and poll() takes no locks at all.
+ */
+public class TransactionRingBuffer {
+    private final int mask;
+    private final AtomicReferenceArray<TransactionRecord> slots;
+    private final AtomicLongArray sequences; // slot i is free for sequence s when it holds s, full when s + 1
+    private final AtomicLong tail = new AtomicLong(); // next sequence to claim
+    private long head = 0; // next sequence to consume; consumer thread only
+
+    /**
+     * Constructs a ring buffer
+     * @param capacity Number of slots, a power of two
+     */
+    public TransactionRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two.");
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    /**
+     * Publishes a record; safe to call from any number of threads
+     * @param record Record to publish
+     * @return the sequence number of the record, or -1 if the buffer is full
+     */
+    public long offer(TransactionRecord record) {
+        long seq = tail.get();
+        while (true) {
+            int index = (int) seq & mask;
+            long diff = sequences.get(index) - seq;
+            if (diff == 0) {
+                if (tail.compareAndSet(seq, seq + 1)) {
+                    slots.lazySet(index, record);
+                    sequences.lazySet(index, seq + 1); // publish
+                    return seq;
+                }
+                seq = tail.get();
+            } else if (diff < 0) {
+                return -1; // the consumer has not freed this slot yet
+            } else {
+                seq = tail.get(); // another producer claimed it
+            }
+        }
+    }
+
+    /**
+     * Takes the next record; must only be called from the single consumer thread
+     * @return the next record in sequence order, or null if none is published yet
+     */
+    public TransactionRecord poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return null;
+
+        TransactionRecord record = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1); // free for the producer one lap ahead
+        head++;
+        return record;
+    }
+
+    /**
+     * @return the sequence number of the next record poll() will return; consumer thread only
+     */
+    public long nextSequence() {
+        return head;
+    }
+}
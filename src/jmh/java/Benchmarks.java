@@ -0,0 +1,398 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import benchmarks.Harness;
+
+/**
+ * Benchmarks.java
+ * Micro-benchmarks for the formatting, persistence and service hot paths.
+ - Each benchmark runs a number of untimed warmup iterations followed by
+   measured iterations, and reports the mean and best time per operation.
+ - Results are folded into a sink so the JIT cannot drop the work.
+ - The formatting, persistence and service workloads can also be built one
+   at a time through workload(), which is how the JMH benchmarks in the
+   benchmarks package run them; see benchmarks.Harness.
+ - Files are written to a temporary directory that is deleted at the end.
+ - Usage: gradle bench [-Pbench=name-filter]
+ */
+public class Benchmarks implements Harness {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+    private static final int RING_OPS = 50_000;
+    private static final int SERVICE_ACCOUNTS = 10_000;
+
+    private static volatile long sink; // consumes benchmark results
+
+    // one benchmarked operation; i is the operation number within the iteration
+    private interface Op {
+        long run(int i) throws Exception;
+    }
+
+    /**
+     * A named operation and the state it runs against
+     */
+    static final class Workload implements Harness.Workload {
+        final String name;
+        final int ops;                // operations per iteration in this harness
+        private final Runnable reset; // restores the state before an iteration, may be null
+        private final Op op;
+
+        Workload(String name, int ops, Runnable reset, Op op) {
+            this.name = name;
+            this.ops = ops;
+            this.reset = reset;
+            this.op = op;
+        }
+
+        // runs operation i and returns its result
+        @Override
+        public long applyAsLong(int i) {
+            try {
+                return op.run(i);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(name + " failed.", e);
+            }
+        }
+
+        // restores the state, e.g. writes out the records a logger has kept
+        @Override
+        public void run() {
+            if (reset != null) reset.run();
+        }
+    }
+
+    private static String filter = "";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) filter = args[0];
+        Path dir = Files.createTempDirectory("bench");
+
+        try {
+            for (Workload w : workloads(dir)) bench(w);
+            benchLogging(dir);
+        } finally {
+            Harness.deleteTree(dir);
+        }
+
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /**
+     * Builds one named workload; only the group it belongs to is built, so
+       only the files of that group are written
+     * @param name Workload name as printed by main()
+     * @param dir  Directory for the files the workload needs
+     * @return the workload
+     * @throws IOException if the files cannot be written
+     * @throws IllegalArgumentException if there is no such workload
+     */
+    @Override
+    public Harness.Workload workload(String name, Path dir) throws IOException {
+        List<Workload> group;
+        if (name.startsWith("BankService.")) {
+            group = service(dir, SERVICE_ACCOUNTS);
+        } else if (name.endsWith(")")) {
+            // persistence workloads are named after their file size, e.g. "...load(10000)"
+            try {
+                group = persistence(dir, Integer.parseInt(name.substring(name.lastIndexOf('(') + 1, name.length() - 1)));
+            } catch (NumberFormatException e) {
+                group = List.of();
+            }
+        } else {
+            group = formatting();
+        }
+
+        for (Workload w : group) {
+            if (w.name.equals(name)) return w;
+        }
+        throw new IllegalArgumentException("No workload named " + name + ".");
+    }
+
+    // every workload except the transaction log ones, with their files in dir
+    private static List<Workload> workloads(Path dir) throws IOException {
+        List<Workload> all = new ArrayList<>(formatting());
+        all.addAll(persistence(dir, 10_000));
+        all.addAll(persistence(dir, 99_999));
+        all.addAll(service(dir, SERVICE_ACCOUNTS));
+        return all;
+    }
+
+    private static List<Workload> formatting() {
+        byte[] buf = new byte[64];
+        TransactionRecord record = new TransactionRecord("04", "John Smith", "00123", 12345, "CQ");
+
+        return Arrays.asList(
+                new Workload("FixedFmt.alpha20", 1_000_000, null, i -> FixedFmt.alpha20("John Smith").length()),
+                new Workload("FixedFmt.acct5", 1_000_000, null, i -> FixedFmt.acct5("123").length()),
+                new Workload("AccountId.parse", 1_000_000, null, i -> AccountId.parse("123").intValue()),
+                new Workload("FixedFmt.money8", 1_000_000, null, i -> FixedFmt.money8(i * 0.01).length()),
+                new Workload("FixedFmt.money8Cents", 1_000_000, null, i -> FixedFmt.money8Cents(i).length()),
+                new Workload("FixedFmt.putAlpha20", 1_000_000, null, i -> FixedFmt.putAlpha20(buf, 0, "John Smith")),
+                new Workload("FixedFmt.putMoney8Cents", 1_000_000, null, i -> FixedFmt.putMoney8Cents(buf, 0, i)),
+                new Workload("TransactionRecord.toFixed40", 1_000_000, null, i -> record.toFixed40().length()),
+                new Workload("TransactionRecord.encodeFixed40", 1_000_000, null, i -> record.encodeFixed40(buf, 0)));
+    }
+
+    private static List<Workload> persistence(Path dir, int size) throws IOException {
+        String file = writeAccountsFile(dir, size).toString();
+        String suffix = "(" + size + ")";
+        List<Workload> all = new ArrayList<>();
+
+        FileAccountsRepository repo = new FileAccountsRepository(file);
+        all.add(new Workload("FileAccountsRepository.load" + suffix, 1, null, i -> {
+            repo.load();
+            return repo.isModified() ? 1 : 0;
+        }));
+
+        all.add(new Workload("FixedRecordValidator.validateAccounts" + suffix, 1, null,
+                i -> FixedRecordValidator.validateAccounts(file).getRecordCount()));
+
+        FileAccountsRepository mapped = new FileAccountsRepository(file);
+        mapped.setMappedLoad(true);
+        all.add(new Workload("FileAccountsRepository.load/mapped" + suffix, 1, null, i -> {
+            mapped.load();
+            return mapped.isModified() ? 1 : 0;
+        }));
+
+        FileAccountsRepository lazy = new FileAccountsRepository(file);
+        lazy.setLazyLoad(true);
+        all.add(new Workload("FileAccountsRepository.load/lazy" + suffix, 1, null, i -> {
+            lazy.load();
+            return lazy.isModified() ? 1 : 0;
+        }));
+
+        // one dirty account: written in place
+        FileAccountsRepository saved = new FileAccountsRepository(file);
+        saved.load();
+        all.add(new Workload("FileAccountsRepository.save/in-place" + suffix, 1, null, i -> {
+            saved.get(FixedFmt.acct5(i % size)).creditCents(1);
+            saved.save();
+            return 1;
+        }));
+
+        // an added account forces a full rewrite
+        all.add(new Workload("FileAccountsRepository.save/rewrite" + suffix, 1, null, i -> {
+            String id = saved.nextAccountId();
+            saved.add(Account.ofCents(id, "Bench", 'A', 0, "NP"));
+            saved.save();
+            saved.remove(id);
+            saved.save();
+            return 2;
+        }));
+        return all;
+    }
+
+    private static List<Workload> service(Path dir, int size) throws IOException {
+        FileAccountsRepository repo = new FileAccountsRepository(writeAccountsFile(dir, size).toString());
+        repo.load();
+        TransactionLogger logger = new TransactionLogger(dir.resolve("transactions.txt").toString());
+        BankService service = new BankService(repo, logger);
+        Session admin = new Session();
+        admin.loginAdmin();
+        List<Workload> all = new ArrayList<>();
+
+        // the logger keeps every record until logout, so it is flushed between iterations
+        int ops = 100_000;
+        Runnable flush = logger::writeAndClear;
+        all.add(new Workload("BankService.withdrawal", ops, flush, i -> {
+            service.withdrawal(admin, "Holder", id(i, size), 1);
+            return i;
+        }));
+        all.add(new Workload("BankService.transfer", ops, flush, i -> {
+            service.transfer(admin, "Holder", id(i, size), id(i + 1, size), 1);
+            return i;
+        }));
+        all.add(new Workload("BankService.deposit", ops, () -> {
+            flush.run();
+            service.applyPendingDeposits();
+        }, i -> {
+            service.deposit(admin, "Holder", id(i, size), 1);
+            return i;
+        }));
+        // the same withdrawals with records handed to the async writer thread; fewer
+        // operations than ring slots, so this measures publishing, not the writer's pace.
+        // The writer is a daemon thread and is left running.
+        TransactionLogger asyncLogger = new TransactionLogger(dir.resolve("transactions-async.txt").toString());
+        asyncLogger.setAsync(true);
+        BankService asyncService = new BankService(repo, asyncLogger);
+        all.add(new Workload("BankService.withdrawal/async-log", RING_OPS, asyncLogger::writeAndClear, i -> {
+            asyncService.withdrawal(admin, "Holder", id(i, size), 1);
+            return i;
+        }));
+
+        all.add(new Workload("BankService.validateStandardAccount", ops, null, i -> {
+            int n = i % size;
+            service.validateStandardAccount("Holder" + (n % 100), AccountId.of(n));
+            return n;
+        }));
+        return all;
+    }
+
+    private static void benchLogging(Path dir) throws IOException {
+        TransactionLogger logger = new TransactionLogger(dir.resolve("transactions.txt").toString());
+        TransactionRecord record = new TransactionRecord("01", "John Smith", "00123", 12345, "");
+
+        // one session of 100,000 records written at logout
+        bench("TransactionLogger.writeAndClear(100000)", 1, () -> {
+            for (int i = 0; i < 100_000; i++) logger.add(record);
+        }, i -> {
+            logger.writeAndClear();
+            return 1;
+        });
+
+        // streaming sessions of 1,000 records under each durability policy
+        for (TransactionLogger.Durability d : TransactionLogger.Durability.values()) {
+            TransactionLogger durable = new TransactionLogger(dir.resolve("transactions-" + d + ".txt").toString());
+            durable.setStreaming(true);
+            durable.setDurability(d, 10);
+            bench("TransactionLogger.add/sync-" + d, 1_000, durable::writeAndClear, i -> {
+                durable.add(record);
+                return 1;
+            });
+            durable.writeAndClear();
+            printSyncStats("TransactionLogger.add/sync-" + d, durable);
+        }
+
+        // the same session written in the binary form
+        TransactionLogger binary = new TransactionLogger(dir.resolve("transactions.bin").toString());
+        binary.setBinary(true);
+        bench("TransactionLogger.writeAndClear(100000)/binary", 1, () -> {
+            for (int i = 0; i < 100_000; i++) binary.add(record);
+        }, i -> {
+            binary.writeAndClear();
+            return 1;
+        });
+
+        // a day of 100,000 mixed records read back by the back end, as text and in the binary form
+        Path text = dir.resolve("transactions-mixed.txt");
+        Path bin = dir.resolve("transactions-mixed.bin");
+        TransactionLogger mixed = new TransactionLogger(text.toString());
+        for (int n = 0; n < 100_000; n++) {
+            mixed.add(new TransactionRecord("0" + (1 + n % 8), "Holder" + (n % 100), FixedFmt.acct5(n % 10_000), n * 37 % 500_000, n % 3 == 0 ? "CQ" : ""));
+        }
+        mixed.writeAndClear();
+        BinaryTransactionLog.textToBinary(text, bin, 1);
+        if ("TransactionLogger".contains(filter) || "BinaryTransactionLog".contains(filter)) {
+            System.out.println(String.format(Locale.ROOT, "  transactions file: %d bytes as text, %d bytes binary",
+                    Files.size(text), Files.size(bin)));
+        }
+        FixedRecordDecoder decoder = new FixedRecordDecoder();
+        bench("FixedRecordDecoder.decodeTransaction(100001)", 1, null, i -> {
+            byte[] bytes = Files.readAllBytes(text);
+            long sum = 0;
+            int stride = TransactionLogWriter.RECORD_BYTES;
+            for (int off = 0; off + 40 <= bytes.length; off += stride) {
+                if (decoder.decodeTransaction(bytes, off)) sum += decoder.getCents();
+            }
+            return sum;
+        });
+        bench("BinaryTransactionLog.Reader(100001)", 1, null, i -> {
+            long sum = 0;
+            try (BinaryTransactionLog.Reader reader = BinaryTransactionLog.open(bin)) {
+                while (reader.next()) sum += reader.getCents();
+            }
+            return sum;
+        });
+
+        // streaming sessions of 100,000 records into 16 MB segments, written or memory mapped
+        for (boolean mapped : new boolean[] {false, true}) {
+            String name = "TransactionLogger.add/" + (mapped ? "mapped" : "segmented");
+            TransactionLogger segmented = new TransactionLogger(dir.resolve("transactions-" + (mapped ? "mapped" : "segmented") + ".txt").toString());
+            segmented.setStreaming(true);
+            segmented.setSegmented(16 << 20, Long.MAX_VALUE);
+            segmented.setMapped(mapped);
+            bench(name, 100_000, segmented::writeAndClear, i -> {
+                segmented.add(record);
+                return 1;
+            });
+            segmented.writeAndClear();
+        }
+
+        // four sessions logging concurrently with RECORD durability share forces (group commit)
+        TransactionLogger group = new TransactionLogger(dir.resolve("transactions-group.txt").toString());
+        group.setAsync(true);
+        group.setDurability(TransactionLogger.Durability.RECORD, 0);
+        bench("TransactionLogger.add/group-commit(4x250)", 1, group::writeAndClear, i -> {
+            Thread[] sessions = new Thread[4];
+            for (int t = 0; t < sessions.length; t++) {
+                sessions[t] = new Thread(() -> {
+                    for (int n = 0; n < 250; n++) group.add(record);
+                });
+                sessions[t].start();
+            }
+            for (Thread t : sessions) t.join();
+            return 1;
+        });
+        group.setAsync(false);
+        printSyncStats("TransactionLogger.add/group-commit(4x250)", group);
+    }
+
+    private static void printSyncStats(String name, TransactionLogger logger) {
+        if (!name.contains(filter)) return;
+        TransactionLogger.SyncStats stats = logger.getSyncStats();
+        System.out.println(String.format(Locale.ROOT, "  %d fsyncs, %.1f records/fsync, %.1f us mean, %.1f us max, %d failures",
+                stats.getSyncCount(),
+                stats.getSyncCount() == 0 ? 0.0 : (double) stats.getRecordCount() / stats.getSyncCount(),
+                stats.getAverageNanos() / 1000.0, stats.getMaxNanos() / 1000.0, stats.getFailureCount()));
+    }
+
+    // writes a regular accounts file with ids 0..size-1 and the END_OF_FILE trailer
+    private static Path writeAccountsFile(Path dir, int size) throws IOException {
+        Path file = dir.resolve("accounts" + size + ".txt");
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            for (int n = 0; n < size; n++) {
+                Account acc = Account.ofCents(FixedFmt.acct5(n), "Holder" + (n % 100), 'A', 9_999_999, "SP");
+                w.write(FileAccountsRepository.formatRecord(acc));
+                w.write('\n');
+            }
+            w.write("00000 END_OF_FILE          A 00000.00\n");
+        }
+        return file;
+    }
+
+    private static AccountId id(int i, int size) {
+        return AccountId.of(i % size);
+    }
+
+    private static void bench(String name, int ops, Runnable reset, Op op) {
+        bench(new Workload(name, ops, reset, op));
+    }
+
+    // runs warmup and measured iterations of ops operations each and prints the time per operation
+    private static void bench(Workload w) {
+        if (!w.name.contains(filter)) return;
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        long acc = 0;
+        try {
+            for (int iter = 0; iter < WARMUP_ITERATIONS + MEASURED_ITERATIONS; iter++) {
+                w.run();
+                long start = System.nanoTime();
+                for (int i = 0; i < w.ops; i++) acc += w.applyAsLong(i);
+                long elapsed = System.nanoTime() - start;
+
+                if (iter >= WARMUP_ITERATIONS) {
+                    total += elapsed;
+                    best = Math.min(best, elapsed);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println(w.name + " failed: " + (e.getCause() != null ? e.getCause() : e));
+            return;
+        }
+        sink += acc;
+
+        double mean = (double) total / MEASURED_ITERATIONS / w.ops;
+        System.out.println(String.format(Locale.ROOT, "%-48s %14.1f ns/op %14.1f ns/op best",
+                w.name, mean, (double) best / w.ops));
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FormattingBenchmark.java
+ - FixedFmt field formatting and TransactionRecord encoding, one call per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+    @State(Scope.Thread)
+    public static class Formatting extends WorkloadState {
+        @Param({"FixedFmt.alpha20", "FixedFmt.acct5", "AccountId.parse", "FixedFmt.money8", "FixedFmt.money8Cents",
+                "FixedFmt.putAlpha20", "FixedFmt.putMoney8Cents",
+                "TransactionRecord.toFixed40", "TransactionRecord.encodeFixed40"})
+        public String workload;
+
+        @Override
+        protected String workloadName() {
+            return workload;
+        }
+    }
+
+    @Benchmark
+    public long format(Formatting s) {
+        return s.op.applyAsLong(s.next());
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.ServiceLoader;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Harness.java
+ - The workloads of the Benchmarks harness, as the JMH states use them.
+ - The application classes, and Benchmarks with them, are in the unnamed
+   package, which a named package cannot import. Benchmarks implements this
+   interface instead and is registered in META-INF/services, so a state
+   finds it once through ServiceLoader and then calls it directly.
+ */
+public interface Harness {
+    /**
+     * A named operation and the state it runs against: applyAsLong(i) runs
+       operation i and run() restores the state before an iteration
+     */
+    interface Workload extends IntToLongFunction, Runnable {
+    }
+
+    /**
+     * Builds one named workload, writing only the files that workload needs
+     * @param name Workload name as printed by the Benchmarks harness
+     * @param dir  Directory for the files the workload needs
+     * @return the workload
+     * @throws IOException if the files cannot be written
+     * @throws IllegalArgumentException if there is no such workload
+     */
+    Workload workload(String name, Path dir) throws IOException;
+
+    /**
+     * @return the harness registered in META-INF/services
+     */
+    static Harness load() {
+        return ServiceLoader.load(Harness.class).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No benchmark harness is registered."));
+    }
+
+    /**
+     * Deletes a directory and everything in it
+     * @param dir Directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
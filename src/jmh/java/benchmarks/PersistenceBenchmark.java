@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PersistenceBenchmark.java
+ - Loading, validating and saving an accounts file of 10,000 accounts and of
+   99,999, the most five-digit account ids allow.
+ - A save/rewrite operation is two full rewrites (add an account, remove it).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @State(Scope.Thread)
+    public static class Persistence extends WorkloadState {
+        @Param({"FileAccountsRepository.load", "FileAccountsRepository.load/mapped", "FileAccountsRepository.load/lazy",
+                "FixedRecordValidator.validateAccounts",
+                "FileAccountsRepository.save/in-place", "FileAccountsRepository.save/rewrite"})
+        public String workload;
+
+        @Param({"10000", "99999"})
+        public int accounts;
+
+        @Override
+        protected String workloadName() {
+            return workload + "(" + accounts + ")";
+        }
+    }
+
+    @Benchmark
+    public long persist(Persistence s) {
+        return s.op.applyAsLong(s.next());
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ServiceBenchmark.java
+ - BankService transactions by an admin session against 10,000 accounts.
+ - The transaction logger keeps its records until the session ends, so
+   transactions are run in sessions of SESSION_OPS and the log is written
+   out between sessions, outside the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    static final int SESSION_OPS = 1_000;
+
+    @State(Scope.Thread)
+    public static class Logged extends WorkloadState {
+        @Param({"BankService.withdrawal", "BankService.transfer", "BankService.deposit",
+                "BankService.withdrawal/async-log"})
+        public String workload;
+
+        @Override
+        protected String workloadName() {
+            return workload;
+        }
+
+        @Setup(Level.Invocation)
+        public void endSession() {
+            op.run();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup extends WorkloadState {
+        @Param("BankService.validateStandardAccount")
+        public String workload;
+
+        @Override
+        protected String workloadName() {
+            return workload;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SESSION_OPS)
+    public long transaction(Logged s) {
+        long acc = 0;
+        for (int n = 0; n < SESSION_OPS; n++) acc += s.op.applyAsLong(s.next());
+        return acc;
+    }
+
+    @Benchmark
+    public long validate(Lookup s) {
+        return s.op.applyAsLong(s.next());
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * WorkloadState.java
+ - Base of the JMH states: builds one named workload of the Benchmarks
+   harness in a temporary directory once per trial and deletes the
+   directory when the trial ends.
+ - Only the files of that workload are written, e.g. a single accounts
+   file of the requested size.
+ */
+public abstract class WorkloadState {
+    private static final Harness HARNESS = Harness.load();
+
+    Harness.Workload op; // runs operation i, and restores the workload's state
+
+    private Path dir;
+    private int next;    // number of the next operation
+
+    // name of the workload, as printed by the Benchmarks harness
+    protected abstract String workloadName();
+
+    @Setup(Level.Trial)
+    public void createWorkload() throws Exception {
+        dir = Files.createTempDirectory("jmh");
+        try {
+            op = HARNESS.workload(workloadName(), dir);
+        } catch (Exception e) {
+            deleteFiles(); // the trial's tear-down does not run after a failed setup
+            throw e;
+        }
+        op.run();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws Exception {
+        if (dir != null) Harness.deleteTree(dir);
+        dir = null;
+    }
+
+    // number of the next operation; never negative
+    int next() {
+        return next++ & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AccountIdAllocatorTest.java
+ - Free numbers are handed out lowest first: gaps left by the loaded
+   accounts and numbers released by removed accounts come before the
+   high-water mark moves up, and 00000 is never handed out.
+ - Concurrent callers never receive the same number, and the allocator
+   refuses once every 5-digit number is in use.
+ */
+class AccountIdAllocatorTest {
+    @Test
+    void gapsInLoadedIdsComeFirst() {
+        AccountIdAllocator ids = new AccountIdAllocator();
+        ids.markUsed(1);
+        ids.markUsed(5);
+        assertEquals(2, ids.allocate());
+        assertEquals(3, ids.allocate());
+        assertEquals(4, ids.allocate());
+        assertEquals(6, ids.allocate());
+    }
+
+    @Test
+    void releasedIdsAreReusedLowestFirst() {
+        AccountIdAllocator ids = new AccountIdAllocator();
+        for (int n = 1; n <= 5; n++) ids.markUsed(n);
+        ids.release(4);
+        ids.release(2);
+        assertFalse(ids.isUsed(2));
+        assertEquals(2, ids.allocate());
+        assertEquals(4, ids.allocate());
+        assertEquals(6, ids.allocate());
+        assertTrue(ids.isUsed(4));
+    }
+
+    @Test
+    void zeroIsNeverHandedOut() {
+        AccountIdAllocator ids = new AccountIdAllocator();
+        ids.markUsed(0);
+        ids.release(0);
+        assertEquals(1, ids.allocate());
+    }
+
+    @Test
+    void allocatorRefusesWhenFull() {
+        AccountIdAllocator ids = new AccountIdAllocator();
+        ids.markUsed(AccountId.MAX);
+        for (int n = 1; n < AccountId.MAX; n++) ids.allocate();
+        assertThrows(IllegalArgumentException.class, ids::allocate);
+    }
+
+    @Test
+    void concurrentCallersGetDistinctIds() throws InterruptedException {
+        AccountIdAllocator ids = new AccountIdAllocator();
+        for (int n = 1; n <= 1000; n += 2) ids.markUsed(n); // leaves every even number below 1000 free
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        Thread[] callers = new Thread[8];
+        for (int t = 0; t < callers.length; t++) {
+            callers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) seen.add(ids.allocate());
+            });
+            callers[t].start();
+        }
+        for (Thread t : callers) t.join();
+        assertEquals(8000, seen.size());
+    }
+}
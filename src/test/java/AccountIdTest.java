@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AccountIdTest.java
+ - Every account number has one canonical AccountId, whether it is looked
+   up by number or parsed from text.
+ - parse() normalizes text the way FixedFmt.acct5 always has, and the
+   text form is the zero-padded 5-digit id.
+ */
+class AccountIdTest {
+    @Test
+    void lookupsAndParsesShareOneInstance() {
+        assertSame(AccountId.of(42), AccountId.of(42));
+        assertSame(AccountId.of(42), AccountId.parse("00042"));
+        assertSame(AccountId.of(42), AccountId.parse(" 42 "));
+        assertSame(AccountId.of(42), AccountId.parse("+42"));
+    }
+
+    @Test
+    void parseNormalizesLikeIntegerParsing() {
+        // the rules FixedFmt.acct5 had before ids were pooled: trim, parseInt, 0 if not a number
+        for (String text : new String[] {"7", " 00123 ", "99999", "", "abc", "-0", "000000042"}) {
+            int n = 0;
+            try { n = Integer.parseInt(text.trim()); } catch (NumberFormatException ignored) {}
+            assertEquals(String.format("%05d", n), AccountId.parse(text).toString(), text);
+        }
+        assertSame(AccountId.of(0), AccountId.parse(null));
+    }
+
+    @Test
+    void numbersOutsideTheRangeAreRejected() {
+        assertNull(AccountId.parse("100000"));
+        assertNull(AccountId.parse("-1"));
+        assertThrows(IllegalArgumentException.class, () -> AccountId.of(100_000));
+        assertThrows(IllegalArgumentException.class, () -> AccountId.of(-1));
+    }
+
+    @Test
+    void textFormIsZeroPadded() {
+        assertEquals("00000", AccountId.of(0).toString());
+        assertEquals("00042", AccountId.of(42).toString());
+        assertEquals("99999", AccountId.of(AccountId.MAX).toString());
+    }
+}
@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * AccountsJournalTest.java
+ - Replays journals left behind by a crash: a torn last line, a group
+   without its "C" line, and a transfer journaled by BankService but never
+   saved to the accounts file.
+ - A transfer between two shards of a ShardedAccountsRepository is one
+   group of the shared journal: recovered as a whole, or not at all.
+ */
+class AccountsJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornLineIsSkippedAndLaterEntriesReplay() throws IOException {
+        Path file = dir.resolve("accounts.journal");
+        AccountsJournal journal = new AccountsJournal(file.toString(), 0);
+        journal.recordUpdate(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        journal.close();
+
+        // a crash in the middle of the next entry
+        Files.write(file, "U 00002 Bob".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        journal = new AccountsJournal(file.toString(), 0);
+        journal.recordUpdate(Account.ofCents("00003", "Cy", 'A', 300, "NP"));
+        journal.recordRemove("1");
+        journal.close();
+
+        List<String> replayed = replay(file);
+        assertEquals(List.of("U 00001 100 SP", "U 00003 300 NP", "R 00001"), replayed);
+    }
+
+    @Test
+    void groupWithoutCommitLineIsNotReplayed() throws IOException {
+        Path file = dir.resolve("accounts.journal");
+        AccountsJournal journal = new AccountsJournal(file.toString(), 0);
+        journal.begin();
+        journal.recordUpdate(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        journal.begin(); // nested groups are written by the outermost commit
+        journal.recordUpdate(Account.ofCents("00002", "Bob", 'A', 200, "SP"));
+        journal.commit();
+        journal.commit();
+        journal.close();
+        assertEquals(List.of("U 00001 100 SP", "U 00002 200 SP"), replay(file));
+
+        // a crash while the next group was written: its "C" line never made it
+        String torn = "B\nU " + FileAccountsRepository.formatRecord(Account.ofCents("00001", "Ann", 'A', 50, "SP")) + " SP\n";
+        Files.write(file, torn.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        assertEquals(List.of("U 00001 100 SP", "U 00002 200 SP"), replay(file));
+    }
+
+    @Test
+    void unsavedTransferIsRecoveredAsAWhole() throws IOException {
+        Path accounts = dir.resolve("accounts.txt");
+        Path journalFile = dir.resolve("accounts.journal");
+        Files.write(accounts, List.of(
+                FileAccountsRepository.formatRecord(Account.ofCents("00001", "Ann", 'A', 10_000, "SP")),
+                FileAccountsRepository.formatRecord(Account.ofCents("00002", "Bob", 'A', 10_000, "SP")),
+                "00000 END_OF_FILE          A 00000.00"), StandardCharsets.US_ASCII);
+
+        FileAccountsRepository repo = new FileAccountsRepository(accounts.toString());
+        AccountsJournal journal = new AccountsJournal(journalFile.toString(), 0);
+        repo.setJournal(journal);
+        repo.load();
+        Session admin = new Session();
+        admin.loginAdmin();
+        new BankService(repo, new TransactionLogger(dir.resolve("transactions.txt").toString()))
+                .transfer(admin, "Ann", AccountId.of(1), AccountId.of(2), 2_500);
+        journal.close(); // crash: the accounts file is never saved
+
+        FileAccountsRepository recovered = new FileAccountsRepository(accounts.toString());
+        recovered.setJournal(new AccountsJournal(journalFile.toString(), 0));
+        recovered.load();
+        assertEquals(7_500, recovered.get("00001").getBalanceCents());
+        assertEquals(12_500, recovered.get("00002").getBalanceCents());
+
+        // after a save the file holds both balances and the journal is empty
+        recovered.save();
+        assertEquals(0, Files.size(journalFile));
+        FileAccountsRepository reloaded = new FileAccountsRepository(accounts.toString());
+        reloaded.load();
+        assertEquals(7_500, reloaded.get("00001").getBalanceCents());
+        assertEquals(12_500, reloaded.get("00002").getBalanceCents());
+    }
+
+    @Test
+    void crossShardTransferIsRecoveredAsAWhole() throws IOException {
+        String base = dir.resolve("accounts.txt").toString();
+        Path journalFile = dir.resolve("accounts.journal");
+        ShardedAccountsRepository repo = new ShardedAccountsRepository(base, 2);
+        AccountsJournal journal = new AccountsJournal(journalFile.toString(), 0);
+        repo.setJournal(journal);
+        repo.load();
+        repo.add(Account.ofCents("00001", "Ann", 'A', 10_000, "SP"));
+        repo.add(Account.ofCents("99000", "Bob", 'A', 10_000, "SP"));
+        repo.save();
+        assertEquals(0, Files.size(journalFile));
+
+        Session admin = new Session();
+        admin.loginAdmin();
+        new BankService(repo, new TransactionLogger(dir.resolve("transactions.txt").toString()))
+                .transfer(admin, "Ann", AccountId.of(1), AccountId.of(99000), 2_500);
+        journal.close(); // crash: neither shard file is saved
+
+        ShardedAccountsRepository recovered = new ShardedAccountsRepository(base, 2);
+        recovered.setJournal(new AccountsJournal(journalFile.toString(), 0));
+        recovered.load();
+        assertEquals(7_500, recovered.get("00001").getBalanceCents());
+        assertEquals(12_500, recovered.get("99000").getBalanceCents());
+
+        // after a save both shard files hold the transfer and the journal is empty
+        recovered.save();
+        assertEquals(0, Files.size(journalFile));
+        ShardedAccountsRepository reloaded = new ShardedAccountsRepository(base, 2);
+        reloaded.load();
+        assertEquals(7_500, reloaded.get("00001").getBalanceCents());
+        assertEquals(12_500, reloaded.get("99000").getBalanceCents());
+    }
+
+    @Test
+    void tornCrossShardTransferIsNotReplayed() throws IOException {
+        String base = dir.resolve("accounts.txt").toString();
+        Path journalFile = dir.resolve("accounts.journal");
+        ShardedAccountsRepository repo = new ShardedAccountsRepository(base, 2);
+        repo.setJournal(new AccountsJournal(journalFile.toString(), 0));
+        repo.load();
+        repo.add(Account.ofCents("00001", "Ann", 'A', 10_000, "SP"));
+        repo.add(Account.ofCents("99000", "Bob", 'A', 10_000, "SP"));
+        repo.save();
+
+        // a crash after the debit of shard 0 was journaled, before the credit of shard 1
+        String torn = "B\nU " + FileAccountsRepository.formatRecord(Account.ofCents("00001", "Ann", 'A', 7_500, "SP")) + " SP\n";
+        Files.write(journalFile, torn.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        ShardedAccountsRepository recovered = new ShardedAccountsRepository(base, 2);
+        recovered.setJournal(new AccountsJournal(journalFile.toString(), 0));
+        recovered.load();
+        assertEquals(10_000, recovered.get("00001").getBalanceCents());
+        assertEquals(10_000, recovered.get("99000").getBalanceCents());
+    }
+
+    // replays a journal into "U <id> <cents> <plan>" and "R <id>" strings
+    private static List<String> replay(Path file) {
+        List<String> replayed = new ArrayList<>();
+        new AccountsJournal(file.toString(), 0).replay(
+                acc -> replayed.add("U " + acc.getId() + " " + acc.getBalanceCents() + " " + acc.getPlan()),
+                id -> replayed.add("R " + id));
+        return replayed;
+    }
+}
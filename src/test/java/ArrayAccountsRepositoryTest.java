@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ArrayAccountsRepositoryTest.java
+ - Ids index the array the way FixedFmt.acct5 normalizes them, so padded
+   and short ids find the same account and ids outside 00000-99999 find
+   none.
+ - save() writes accounts in id order whatever order they were added in,
+   and the ids of removed accounts are handed out again.
+ */
+class ArrayAccountsRepositoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void paddedAndShortIdsFindTheSameAccount() {
+        ArrayAccountsRepository repo = new ArrayAccountsRepository(dir.resolve("accounts.txt").toString());
+        Account ann = Account.ofCents("00042", "Ann", 'A', 100, "SP");
+        repo.add(ann);
+
+        assertSame(ann, repo.get("42"));
+        assertSame(ann, repo.get(" 00042 "));
+        assertSame(ann, repo.get(AccountId.of(42)));
+    }
+
+    @Test
+    void idsOutsideTheRangeFindNothing() {
+        ArrayAccountsRepository repo = new ArrayAccountsRepository(dir.resolve("accounts.txt").toString());
+        repo.add(Account.ofCents("99999", "Zed", 'A', 100, "SP"));
+
+        assertEquals("Zed", repo.get("99999").getName());
+        assertFalse(repo.exists("100000"));
+        assertFalse(repo.exists("4a"));
+        assertThrows(IllegalArgumentException.class, () -> repo.get(""));
+        assertThrows(IllegalArgumentException.class,
+                () -> repo.add(Account.ofCents("-1", "Neg", 'A', 0, "SP")));
+    }
+
+    @Test
+    void saveWritesAccountsInIdOrder() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        ArrayAccountsRepository repo = new ArrayAccountsRepository(file.toString());
+        repo.add(Account.ofCents("00300", "Cy", 'A', 300, "SP"));
+        repo.add(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        repo.add(Account.ofCents("00020", "Bob", 'D', 200, "SP"));
+        repo.save();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4, lines.size());
+        assertEquals("00001", lines.get(0).substring(0, 5));
+        assertEquals("00020", lines.get(1).substring(0, 5));
+        assertEquals("00300", lines.get(2).substring(0, 5));
+        assertEquals("00000 END_OF_FILE          A 00000.00", lines.get(3));
+
+        ArrayAccountsRepository reloaded = new ArrayAccountsRepository(file.toString());
+        reloaded.load();
+        assertEquals('D', reloaded.get("00020").getStatus());
+    }
+
+    @Test
+    void removedIdIsReused() {
+        ArrayAccountsRepository repo = new ArrayAccountsRepository(dir.resolve("accounts.txt").toString());
+        repo.add(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        repo.add(Account.ofCents("00002", "Bob", 'A', 200, "SP"));
+        repo.remove("00001");
+
+        assertEquals("00001", repo.nextAccountId());
+        assertEquals("00003", repo.nextAccountId());
+    }
+}
@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * AsyncSaveTest.java
+ - Saves in asynchronous mode only hand the changed accounts to the
+   snapshot writer; the file it writes must still hold every account,
+   whether unchanged, updated, added or removed.
+ */
+class AsyncSaveTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void firstSnapshotKeepsUnchangedAccountsFromTheFile() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        repo.setAsyncSave(true);
+        repo.get("00001").creditCents(500);
+        repo.save();
+        repo.awaitSave();
+
+        FileAccountsRepository reloaded = load(file);
+        assertEquals(10_500, reloaded.get("00001").getBalanceCents());
+        assertEquals(20_000, reloaded.get("00002").getBalanceCents());
+        assertEquals(30_000, reloaded.get("00003").getBalanceCents());
+    }
+
+    @Test
+    void laterSnapshotsApplyAddsAndRemoves() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        repo.setAsyncSave(true);
+        repo.get("00002").debitCents(2_000);
+        repo.save();
+        repo.add(Account.ofCents("00004", "Dee", 'A', 400, "SP"));
+        repo.remove("00001");
+        repo.save();
+        repo.awaitSave();
+
+        FileAccountsRepository reloaded = load(file);
+        assertFalse(reloaded.exists("00001"));
+        assertEquals(18_000, reloaded.get("00002").getBalanceCents());
+        assertEquals(30_000, reloaded.get("00003").getBalanceCents());
+        assertEquals(400, reloaded.get("00004").getBalanceCents());
+    }
+
+    @Test
+    void snapshotAfterReloadStartsFromTheFileAgain() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        repo.setAsyncSave(true);
+        repo.remove("00003");
+        repo.save();
+        repo.load(); // waits for the snapshot, then reads the file it wrote
+        repo.get("00001").creditCents(1);
+        repo.save();
+        repo.awaitSave();
+
+        FileAccountsRepository reloaded = load(file);
+        assertFalse(reloaded.exists("00003"));
+        assertEquals(10_001, reloaded.get("00001").getBalanceCents());
+        assertEquals(20_000, reloaded.get("00002").getBalanceCents());
+    }
+
+    private Path accountsFile() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(
+                FileAccountsRepository.formatRecord(Account.ofCents("00001", "Ann", 'A', 10_000, "SP")),
+                FileAccountsRepository.formatRecord(Account.ofCents("00002", "Bob", 'A', 20_000, "SP")),
+                FileAccountsRepository.formatRecord(Account.ofCents("00003", "Cy", 'A', 30_000, "SP")),
+                "00000 END_OF_FILE          A 00000.00"), StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    private static FileAccountsRepository load(Path file) {
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        return repo;
+    }
+}
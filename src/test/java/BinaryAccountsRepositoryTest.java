@@ -0,0 +1,57 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BinaryAccountsRepositoryTest.java
+ - Round-trips accounts through the binary file format, and loads a file
+   cut off in the middle of its records as an empty repository rather
+   than a partially loaded one.
+ */
+class BinaryAccountsRepositoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void savedAccountsLoadBack() {
+        String file = dir.resolve("accounts.bin").toString();
+        saveThreeAccounts(file);
+
+        BinaryAccountsRepository repo = new BinaryAccountsRepository(file);
+        repo.load();
+        assertEquals(100, repo.get("00001").getBalanceCents());
+        assertEquals('D', repo.get("00002").getStatus());
+        assertEquals("NP", repo.get("00003").getPlan());
+        assertEquals("00004", repo.nextAccountId());
+    }
+
+    @Test
+    void truncatedFileLoadsEmpty() throws IOException {
+        Path file = dir.resolve("accounts.bin");
+        saveThreeAccounts(file.toString());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5)); // the last record is cut short
+
+        BinaryAccountsRepository repo = new BinaryAccountsRepository(file.toString());
+        repo.load();
+        assertFalse(repo.exists("00001"));
+        assertFalse(repo.exists("00002"));
+        assertEquals("00001", repo.nextAccountId());
+    }
+
+    private static void saveThreeAccounts(String file) {
+        BinaryAccountsRepository repo = new BinaryAccountsRepository(file);
+        repo.load();
+        repo.add(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        repo.add(Account.ofCents("00002", "Bob", 'D', 200, "SP"));
+        repo.add(Account.ofCents("00003", "Cy", 'A', 300, "NP"));
+        repo.save();
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BinaryTransactionLogTest.java
+ - Text converted to binary and back is the same text, including lines
+   that do not have the record layout, and the binary logger writes files
+   that convert to what the text logger writes.
+ */
+class BinaryTransactionLogTest {
+    private static final String SEPARATOR = System.lineSeparator();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void textSurvivesTheRoundTrip() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // repeated names and misc fields reuse their definitions
+            lines.add(new TransactionRecord(String.format("%02d", i % 8 + 1), "Holder " + (i % 7),
+                    String.valueOf(i % 50), i * 137L, i % 3 == 0 ? "EC" : "").toFixed40());
+        }
+        lines.add(new TransactionRecord("00", "", "00000", 0, "").toFixed40());
+        lines.add("not a record");
+        lines.add("");
+        lines.add("01 Ann                  00001 0000x.00  "); // money that is not digits
+        lines.add(new TransactionRecord("04", "Bob", "99999", 9_999_999, "CQ").toFixed40());
+
+        Path text = dir.resolve("transactions.txt");
+        Files.write(text, String.join(SEPARATOR, lines).concat(SEPARATOR).getBytes(StandardCharsets.US_ASCII));
+        Path binary = dir.resolve("transactions.bin");
+        Path back = dir.resolve("back.txt");
+
+        assertEquals(lines.size(), BinaryTransactionLog.textToBinary(text, binary, 1));
+        assertTrue(Files.size(binary) < Files.size(text) / 2);
+        assertEquals(lines.size(), BinaryTransactionLog.binaryToText(binary, back));
+        assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(back));
+
+        try (BinaryTransactionLog.Reader reader = BinaryTransactionLog.open(binary)) {
+            for (int i = 0; i < lines.size(); i++) {
+                assertTrue(reader.next());
+                assertEquals(i + 1, reader.getSequence());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void crlfLinesAndAMissingLastSeparatorConvert() throws IOException {
+        String a = new TransactionRecord("01", "Ann", "00001", 100, "").toFixed40();
+        String b = new TransactionRecord("02", "Bob", "00002", 200, "").toFixed40();
+        Path text = dir.resolve("crlf.txt");
+        Files.write(text, (a + "\r\n" + b).getBytes(StandardCharsets.US_ASCII));
+        Path binary = dir.resolve("crlf.bin");
+        Path back = dir.resolve("back.txt");
+
+        assertEquals(2, BinaryTransactionLog.textToBinary(text, binary, 1));
+        BinaryTransactionLog.binaryToText(binary, back);
+        assertEquals(a + SEPARATOR + b + SEPARATOR, Files.readString(back, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void binaryLoggerConvertsToWhatTheTextLoggerWrites() throws IOException {
+        Path textLog = dir.resolve("text.txt");
+        Path binaryLog = dir.resolve("binary.bin");
+        TransactionLogger text = new TransactionLogger(textLog.toString());
+        TransactionLogger binary = new TransactionLogger(binaryLog.toString());
+        text.setStreaming(true);
+        binary.setStreaming(true);
+        binary.setBinary(true);
+
+        // two sessions appended to the same file, each starting its own definitions
+        for (int session = 0; session < 2; session++) {
+            for (int i = 0; i < 100; i++) {
+                TransactionRecord r = new TransactionRecord("03", "Holder " + (i % 5), String.valueOf(i), i, "NP");
+                text.add(r);
+                binary.add(r);
+            }
+            text.writeAndClear();
+            binary.writeAndClear();
+        }
+
+        Path converted = dir.resolve("converted.txt");
+        assertEquals(202, BinaryTransactionLog.binaryToText(binaryLog, converted));
+        assertArrayEquals(Files.readAllBytes(textLog), Files.readAllBytes(converted));
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FixedRecordDecoderTest.java
+ - Arrays, buffers and text lines decode to the same fields.
+ - Lines the decoder does not accept still parse, in cents, through the
+   String fallback of FileAccountsRepository.parseRecord.
+ */
+class FixedRecordDecoderTest {
+    private static final String ACCOUNT = "00042 John Smith           D 01234.56";
+    private static final String TRANSACTION = "02 John Smith           00042 00100.50CQ";
+
+    @Test
+    void everySourceDecodesTheSameAccount() {
+        byte[] bytes = ("xx" + ACCOUNT).getBytes(StandardCharsets.US_ASCII);
+        FixedRecordDecoder array = new FixedRecordDecoder();
+        FixedRecordDecoder buffer = new FixedRecordDecoder();
+        FixedRecordDecoder text = new FixedRecordDecoder();
+        assertTrue(array.decodeAccount(bytes, 2));
+        assertTrue(buffer.decodeAccount(ByteBuffer.wrap(bytes), 2));
+        assertTrue(text.decodeAccount("xx" + ACCOUNT, 2));
+
+        for (FixedRecordDecoder d : new FixedRecordDecoder[] { array, buffer, text }) {
+            assertEquals(42, d.getId());
+            assertEquals("John Smith", d.getName());
+            assertTrue(d.nameEquals("John Smith"));
+            assertEquals('D', d.getStatus());
+            assertEquals(123_456, d.getCents());
+        }
+    }
+
+    @Test
+    void transactionsDecodeFromArraysAndBuffers() {
+        byte[] bytes = TRANSACTION.getBytes(StandardCharsets.US_ASCII);
+        FixedRecordDecoder d = new FixedRecordDecoder();
+        assertTrue(d.decodeTransaction(bytes, 0));
+        assertEquals(2, d.getCode());
+        assertEquals(42, d.getId());
+        assertEquals(10_050, d.getCents());
+        assertEquals("CQ", d.getMisc());
+
+        assertTrue(d.decodeTransaction(ByteBuffer.wrap(bytes), 0));
+        assertEquals("John Smith", d.getName());
+        assertFalse(d.decodeTransaction(bytes, 1)); // runs past the end
+    }
+
+    @Test
+    void irregularLinesFallBackToTheStringParser() {
+        FixedRecordDecoder d = new FixedRecordDecoder();
+        assertFalse(d.decodeAccount("00001 Zoë                  A 00001.00", 0));
+        assertEquals("Zoë", FileAccountsRepository.parseRecord("00001 Zoë                  A 00001.00", d).getName());
+
+        assertEquals(-250, FileAccountsRepository.parseRecord("00002 Signed               A -0002.50", d).getBalanceCents());
+        assertEquals(100_000, FileAccountsRepository.parseRecord("00003 Exponent             A 1.0E+003", d).getBalanceCents());
+        assertEquals(0, FileAccountsRepository.parseRecord("00004 Garbage              A 12ab4.00", d).getBalanceCents());
+        assertSame(FileAccountsRepository.parseRecord("00000 END_OF_FILE          A 00000.00", d),
+                FileAccountsRepository.parseRecord("00000 END_OF_FILE          A 00000.00"));
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * FixedRecordValidatorTest.java
+ - Files the repositories and loggers write pass, including holder names
+   outside ASCII and "\r\n" line ends.
+ - A bad line is reported at its own offset and the lines after it still
+   pass, wherever the line falls relative to the mapped windows.
+ */
+class FixedRecordValidatorTest {
+    private static final String END = "00000 END_OF_FILE          A 00000.00";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void accountsWithNonAsciiNamesPassAndLoad() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.add(Account.ofCents("00001", "Ann", 'A', 100, "SP"));
+        repo.add(Account.ofCents("00002", "Zoë Müller", 'D', 200, "NP"));
+        repo.add(Account.ofCents("00003", "漢字漢字漢字漢字漢字漢字漢字漢字漢字漢字", 'A', 300, "SP"));
+        repo.save();
+
+        FixedRecordValidator.Result result = FixedRecordValidator.validateAccounts(file.toString());
+        assertTrue(result.isValid());
+        assertEquals(4, result.getRecordCount());
+
+        FileAccountsRepository validated = new FileAccountsRepository(file.toString());
+        validated.setValidateOnLoad(true);
+        validated.load();
+        assertEquals(300, validated.get("00003").getBalanceCents());
+    }
+
+    @Test
+    void crlfLinesPass() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, (record(1) + "\r\n" + END + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertTrue(FixedRecordValidator.validateAccounts(file.toString()).isValid());
+    }
+
+    @Test
+    void badLinesAreReportedAtTheirOwnOffsets() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        List<String> lines = List.of(record(1), "00002 too short", record(3),
+                "0000x Bad Digits           A 00001.00", "00005 Bad\tControl         A 00001.00",
+                "00006 Bad Status           X 00001.00", "00007 Too Long ASCII Name    A 00001.00", END);
+        Files.write(file, lines, StandardCharsets.US_ASCII);
+
+        FixedRecordValidator.Result result = FixedRecordValidator.validateAccounts(file.toString());
+        assertEquals(8, result.getRecordCount());
+        assertArrayEquals(new long[] { offsetOf(lines, 1), offsetOf(lines, 3), offsetOf(lines, 4),
+                offsetOf(lines, 5), offsetOf(lines, 6) }, result.getInvalidOffsets());
+    }
+
+    @Test
+    void missingEndOfFileIsReportedAtTheEnd() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(record(1)), StandardCharsets.US_ASCII);
+        FixedRecordValidator.Result result = FixedRecordValidator.validateAccounts(file.toString());
+        assertArrayEquals(new long[] { Files.size(file) }, result.getInvalidOffsets());
+    }
+
+    @Test
+    void badLineNearAWindowBoundaryDoesNotShiftTheLinesAfterIt() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int n = 1; n <= 10; n++) lines.add(record(n));
+        lines.add(4, "00099 short");
+        lines.add(END);
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, lines, StandardCharsets.US_ASCII);
+        long[] expected = { offsetOf(lines, 4) };
+
+        // every window size that holds the longest possible line, so the bad
+        // line and the records around it fall on each side of some boundary
+        for (long window = 100; window <= Files.size(file); window++) {
+            FixedRecordValidator.Result result = FixedRecordValidator.validateAccounts(file.toString(), window);
+            assertArrayEquals(expected, result.getInvalidOffsets(), "window " + window);
+            assertEquals(lines.size(), result.getRecordCount(), "window " + window);
+        }
+    }
+
+    @Test
+    void transactionLogsPassAndControlBytesDoNot() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionLogWriter writer = new TransactionLogWriter(4096, 1);
+        writer.open(file, false);
+        writer.append(new TransactionRecord("01", "Ann", "00001", 100, ""), 1);
+        writer.append(new TransactionRecord("02", "Zoë Müller", "00002", 200, "CQ"), 2);
+        writer.close();
+        assertTrue(FixedRecordValidator.validateTransactions(file.toString()).isValid());
+
+        Files.write(file, "03 Bell\u0007                00003 00001.00  \n".getBytes(Charset.defaultCharset()),
+                StandardOpenOption.APPEND);
+        FixedRecordValidator.Result result = FixedRecordValidator.validateTransactions(file.toString());
+        assertFalse(result.isValid());
+        assertEquals(3, result.getRecordCount());
+        assertEquals(1, result.getInvalidCount());
+    }
+
+    private static String record(int id) {
+        return FileAccountsRepository.formatRecord(Account.ofCents(String.format("%05d", id), "Holder " + id, 'A', id * 100L, "SP"));
+    }
+
+    // byte offset of a line in an ASCII file written with the platform line separator
+    private static long offsetOf(List<String> lines, int index) {
+        long offset = 0;
+        for (int i = 0; i < index; i++) offset += lines.get(i).length() + System.lineSeparator().length();
+        return offset;
+    }
+}
@@ -0,0 +1,33 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * HolderNamesTest.java
+ - Holder names compare like String.equalsIgnoreCase on the trimmed names,
+   whether the names or their folded keys are passed.
+ */
+class HolderNamesTest {
+    @Test
+    void foldTrimsAndFoldsCase() {
+        assertEquals("ann lee", HolderNames.fold("  Ann LEE "));
+        assertEquals("", HolderNames.fold(null));
+    }
+
+    @Test
+    void foldingAFoldedKeyReturnsIt() {
+        String key = HolderNames.fold("Zoë Ünal");
+        assertSame(key, HolderNames.fold(key));
+    }
+
+    @Test
+    void sameHolderIgnoresCaseAndPadding() {
+        assertTrue(HolderNames.sameHolder("Ann Lee             ", "ann lee"));
+        assertTrue(HolderNames.sameHolder("ZOË", HolderNames.fold("zoë")));
+        assertFalse(HolderNames.sameHolder("Ann Lee", "Ann Le"));
+        assertFalse(HolderNames.sameHolder("Ann", null));
+    }
+}
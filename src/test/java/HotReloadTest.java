@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HotReloadTest.java
+ - A watched accounts file rewritten by another process is applied on the
+   next repository call: changed and added records replace or join the
+   in-memory accounts, records gone from the file are dropped, and
+   unchanged accounts keep their Account objects.
+ - Accounts with unsaved local changes keep their local state.
+ */
+class HotReloadTest {
+    private static final String TRAILER = "00000 END_OF_FILE          A 00000.00";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void changedAndAddedRecordsAreApplied() throws Exception {
+        Path file = write(record("00001", 100), record("00002", 200));
+        FileAccountsRepository repo = watched(file);
+        try {
+            write(record("00001", 100), record("00002", 250), record("00003", 300));
+            awaitReload(() -> repo.exists("00003"));
+
+            assertEquals(250, repo.get("00002").getBalanceCents());
+            assertEquals(300, repo.get("00003").getBalanceCents());
+        } finally {
+            repo.stopWatching();
+        }
+    }
+
+    @Test
+    void unchangedAccountKeepsItsObject() throws Exception {
+        Path file = write(record("00001", 100), record("00002", 200));
+        FileAccountsRepository repo = watched(file);
+        try {
+            Account unchanged = repo.get("00001");
+            write(record("00001", 100), record("00002", 250));
+            awaitReload(() -> repo.get("00002").getBalanceCents() == 250);
+
+            assertSame(unchanged, repo.get("00001"));
+        } finally {
+            repo.stopWatching();
+        }
+    }
+
+    @Test
+    void recordGoneFromTheFileIsDropped() throws Exception {
+        Path file = write(record("00001", 100), record("00002", 200));
+        FileAccountsRepository repo = watched(file);
+        try {
+            write(record("00002", 200));
+            awaitReload(() -> !repo.exists("00001"));
+
+            assertFalse(repo.exists("00001"));
+            assertEquals(200, repo.get("00002").getBalanceCents());
+        } finally {
+            repo.stopWatching();
+        }
+    }
+
+    @Test
+    void unsavedLocalChangeWins() throws Exception {
+        Path file = write(record("00001", 100), record("00002", 200));
+        FileAccountsRepository repo = watched(file);
+        try {
+            repo.get("00001").creditCents(5);
+            write(record("00001", 900), record("00002", 250));
+            awaitReload(() -> repo.get("00002").getBalanceCents() == 250);
+
+            assertEquals(105, repo.get("00001").getBalanceCents());
+        } finally {
+            repo.stopWatching();
+        }
+    }
+
+    private static String record(String id, long cents) {
+        return FileAccountsRepository.formatRecord(Account.ofCents(id, "Holder", 'A', cents, "SP"));
+    }
+
+    private Path write(String... records) throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        StringBuilder text = new StringBuilder();
+        for (String r : records) text.append(r).append('\n');
+        text.append(TRAILER).append('\n');
+        Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static FileAccountsRepository watched(Path file) throws IOException {
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        repo.startWatching();
+        return repo;
+    }
+
+    // polls the repository until the reload shows or ten seconds have passed
+    private static void awaitReload(BooleanSupplier applied) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!applied.getAsBoolean() && System.nanoTime() < deadline) Thread.sleep(20);
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * InPlaceSaveTest.java
+ - save() rewrites only the records of changed accounts when the file has
+   the regular fixed-width layout, and falls back to rewriting the whole
+   file when accounts were added or removed.
+ - The second record is written with a blank-padded balance, which loads
+   fine but is never produced by formatRecord, so it shows whether the
+   file was rewritten.
+ */
+class InPlaceSaveTest {
+    private static final String ANN = "00001 Ann                  A 00100.00";
+    private static final String BOB = "00002 Bob                  A   200.00";
+    private static final String TRAILER = "00000 END_OF_FILE          A 00000.00";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void changedAccountIsWrittenInItsSlot() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = load(file);
+        repo.get("00001").creditCents(50);
+        repo.save();
+
+        assertEquals(List.of("00001 Ann                  A 00100.50", BOB, TRAILER), Files.readAllLines(file));
+    }
+
+    @Test
+    void addedAccountRewritesTheWholeFile() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = load(file);
+        repo.add(Account.ofCents("00003", "Cy", 'A', 300, "SP"));
+        repo.save();
+
+        assertEquals(List.of(ANN, "00002 Bob                  A 00200.00",
+                "00003 Cy                   A 00003.00", TRAILER), Files.readAllLines(file));
+    }
+
+    @Test
+    void removedAccountIsGoneAfterSave() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = load(file);
+        repo.remove("00001");
+        repo.save();
+
+        assertFalse(load(file).exists("00001"));
+        assertEquals(20_000, load(file).get("00002").getBalanceCents());
+    }
+
+    @Test
+    void saveClearsTheModifiedFlag() throws IOException {
+        FileAccountsRepository repo = load(accountsFile());
+        repo.get("00002").debitCents(1);
+        assertTrue(repo.isModified());
+        repo.save();
+        assertFalse(repo.isModified());
+    }
+
+    private Path accountsFile() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(ANN, BOB, TRAILER), StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    private static FileAccountsRepository load(Path file) {
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        return repo;
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * LazyLoadTest.java
+ - In lazy mode load() only indexes record offsets; an account is parsed
+   the first time it is looked up, the later of two duplicates wins as in
+   the eager load, and indexed ids count as used.
+ - Accounts that were never looked up survive a full rewrite of the file.
+ */
+class LazyLoadTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void accountIsParsedOnLookup() throws IOException {
+        FileAccountsRepository repo = lazyLoad(accountsFile());
+        assertEquals("Bob", repo.get("00002").getName());
+        assertEquals(20_000, repo.get("00002").getBalanceCents());
+        assertFalse(repo.exists("00004"));
+    }
+
+    @Test
+    void laterDuplicateWins() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(
+                record("00001", "Ann", 100),
+                record("00001", "Ann", 200),
+                "00000 END_OF_FILE          A 00000.00"), StandardCharsets.US_ASCII);
+        assertEquals(200, lazyLoad(file).get("00001").getBalanceCents());
+    }
+
+    @Test
+    void indexedIdsAreNotHandedOut() throws IOException {
+        assertEquals("00004", lazyLoad(accountsFile()).nextAccountId());
+    }
+
+    @Test
+    void untouchedAccountsSurviveAFullRewrite() throws IOException {
+        Path file = accountsFile();
+        FileAccountsRepository repo = lazyLoad(file);
+        repo.add(Account.ofCents("00004", "Dee", 'A', 400, "SP"));
+        repo.save();
+
+        FileAccountsRepository reloaded = new FileAccountsRepository(file.toString());
+        reloaded.load();
+        assertEquals(10_000, reloaded.get("00001").getBalanceCents());
+        assertEquals(30_000, reloaded.get("00003").getBalanceCents());
+        assertEquals(400, reloaded.get("00004").getBalanceCents());
+    }
+
+    private static String record(String id, String name, long cents) {
+        return FileAccountsRepository.formatRecord(Account.ofCents(id, name, 'A', cents, "SP"));
+    }
+
+    private Path accountsFile() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(
+                record("00001", "Ann", 10_000),
+                record("00002", "Bob", 20_000),
+                record("00003", "Cy", 30_000),
+                "00000 END_OF_FILE          A 00000.00"), StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    private static FileAccountsRepository lazyLoad(Path file) {
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.setLazyLoad(true);
+        repo.load();
+        return repo;
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MappedLoadTest.java
+ - The memory-mapped load parses a file split into parallel chunks into
+   the same accounts as the sequential load: every record of a file much
+   larger than one chunk, the later of two duplicate ids even when they
+   are in different chunks, and nothing from bad lines or after the
+   END_OF_FILE trailer.
+ */
+class MappedLoadTest {
+    private static final String TRAILER = "00000 END_OF_FILE          A 00000.00";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyRecordOfAManyChunkFileIsLoaded() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int n = 1; n <= 10_000; n++) lines.add(record(n, n));
+        lines.add(TRAILER);
+        FileAccountsRepository repo = mappedLoad(write(lines));
+
+        for (int n = 1; n <= 10_000; n++) assertEquals(n, repo.get(FixedFmt.acct5(n)).getBalanceCents());
+        assertFalse(repo.exists("10001"));
+    }
+
+    @Test
+    void laterDuplicateWinsAcrossChunks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(record(7, 100));
+        for (int n = 1000; n < 5000; n++) lines.add(record(n, n)); // pushes the duplicate into a later chunk
+        lines.add(record(7, 200));
+        lines.add(TRAILER);
+
+        assertEquals(200, mappedLoad(write(lines)).get("00007").getBalanceCents());
+    }
+
+    @Test
+    void badLinesAndRecordsAfterTheTrailerAreSkipped() throws IOException {
+        Path file = write(List.of(record(1, 100), "garbage", record(2, 200), TRAILER, record(3, 300)));
+        FileAccountsRepository repo = mappedLoad(file);
+
+        assertEquals(100, repo.get("00001").getBalanceCents());
+        assertEquals(200, repo.get("00002").getBalanceCents());
+        assertFalse(repo.exists("00003"));
+    }
+
+    private static String record(int n, long cents) {
+        return FileAccountsRepository.formatRecord(Account.ofCents(FixedFmt.acct5(n), "Holder" + n % 10, 'A', cents, "SP"));
+    }
+
+    private Path write(List<String> lines) throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, lines, StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    private static FileAccountsRepository mappedLoad(Path file) {
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.setMappedLoad(true);
+        repo.load();
+        return repo;
+    }
+}
@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MappedTransactionLogWriterTest.java
+ - A segment prepared in the background is the one opened next, and is
+   truncated to its records on close.
+ - A prepared segment that is never opened is deleted by discardPrepared(),
+   and one prepared over a file with data leaves that file alone.
+ */
+class MappedTransactionLogWriterTest {
+    private static final TransactionRecord RECORD = new TransactionRecord("01", "Ann", "00001", 100, "");
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void preparedSegmentIsOpenedAndTruncatedOnClose() throws IOException {
+        Path next = dir.resolve("segment-2.log");
+        MappedTransactionLogWriter writer = new MappedTransactionLogWriter(SEGMENT_BYTES);
+        writer.prepare(next);
+        writer.open(next, true);
+        int bytes = writer.append(RECORD, 1);
+        writer.append(RECORD, 2);
+        writer.close();
+
+        assertEquals(2L * bytes, Files.size(next));
+        assertEquals(RECORD.toFixed40(), Files.readAllLines(next).get(1));
+    }
+
+    @Test
+    void unusedPreparedSegmentIsDeleted() throws IOException {
+        Path next = dir.resolve("segment-2.log");
+        MappedTransactionLogWriter writer = new MappedTransactionLogWriter(SEGMENT_BYTES);
+        writer.prepare(next);
+        writer.discardPrepared();
+        assertFalse(Files.exists(next));
+    }
+
+    @Test
+    void segmentWithDataIsNotPrepared() throws IOException {
+        Path next = dir.resolve("segment-2.log");
+        byte[] existing = (RECORD.toFixed40() + System.lineSeparator()).getBytes();
+        Files.write(next, existing);
+
+        MappedTransactionLogWriter writer = new MappedTransactionLogWriter(SEGMENT_BYTES);
+        writer.prepare(next);
+        writer.discardPrepared();
+        assertEquals(existing.length, Files.size(next));
+    }
+}
@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * NonAsciiNamesTest.java
+ - Holder names outside ASCII are written in the platform charset, as the
+   String-based writers always did, by every byte-level encoding path.
+ - The off-heap table keeps a full 20-character name of multi-byte
+   characters without cutting a character in two.
+ */
+class NonAsciiNamesTest {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final String NAME = "Zoë Müller";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void accountsKeepTheirNamesThroughSaveAndLoad() throws IOException {
+        Path file = dir.resolve("accounts.txt");
+        Files.write(file, List.of(
+                FileAccountsRepository.formatRecord(Account.ofCents("00001", "Ann", 'A', 100, "SP")),
+                "00000 END_OF_FILE          A 00000.00"), StandardCharsets.US_ASCII);
+
+        FileAccountsRepository repo = new FileAccountsRepository(file.toString());
+        repo.load();
+        repo.add(Account.ofCents("00002", NAME, 'A', 200, "SP"));
+        repo.save(); // full rewrite
+        repo.get("00002").creditCents(1);
+        repo.save(); // the file is no longer fixed-width, so another full rewrite
+
+        FileAccountsRepository reloaded = new FileAccountsRepository(file.toString());
+        reloaded.load();
+        assertEquals(new String(NAME.getBytes(CHARSET), CHARSET), reloaded.get("00002").getName());
+        assertEquals(201, reloaded.get("00002").getBalanceCents());
+        assertEquals("Ann", reloaded.get("00001").getName());
+    }
+
+    @Test
+    void transactionRecordsEncodeLikeToFixed40() throws IOException {
+        TransactionRecord record = new TransactionRecord("01", NAME, "00002", 12_345, "");
+        byte[] expected = record.toFixed40().getBytes(CHARSET);
+
+        byte[] encoded = new byte[TransactionRecord.MAX_FIXED40_BYTES];
+        int end = record.encodeFixed40(encoded, 0);
+        assertEquals(expected.length, end);
+        assertArrayEquals(expected, Arrays.copyOf(encoded, end));
+
+        // the text and binary logs both read back as the same line
+        Path text = dir.resolve("transactions.txt");
+        TransactionLogWriter writer = new TransactionLogWriter(4096, 1);
+        writer.open(text, false);
+        writer.append(record, 1);
+        writer.close();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        line.write(expected);
+        line.write(TransactionLogWriter.LINE_SEPARATOR);
+        assertArrayEquals(line.toByteArray(), Files.readAllBytes(text));
+
+        Path binary = dir.resolve("transactions.bin");
+        BinaryTransactionLogWriter binaryWriter = new BinaryTransactionLogWriter(4096);
+        binaryWriter.open(binary, false);
+        binaryWriter.append(record, 1);
+        binaryWriter.close();
+        Path converted = dir.resolve("converted.txt");
+        BinaryTransactionLog.binaryToText(binary, converted);
+        assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(converted));
+    }
+
+    @Test
+    void offHeapSlotsKeepTwentyMultiByteCharacters() throws IOException {
+        String twoByte = "ÉéÈèÊêËëÀàÂâÄäÇçÔôÖö";   // 20 chars, 40 UTF-8 bytes
+        String threeByte = "漢字漢字漢字漢字漢字漢字漢字漢字漢字漢字"; // 20 chars, 60 UTF-8 bytes
+        Path file = dir.resolve("accounts.txt");
+        OffHeapAccountsRepository repo = new OffHeapAccountsRepository(file.toString());
+        repo.add(Account.ofCents("00001", twoByte, 'A', 100, "SP"));
+        repo.add(Account.ofCents("00002", threeByte, 'D', 200, "NP"));
+        assertEquals(twoByte, repo.get("00001").getName());
+        assertEquals(threeByte, repo.get("00002").getName());
+        assertEquals(200, repo.get("00002").getBalanceCents());
+
+        repo.save();
+        OffHeapAccountsRepository reloaded = new OffHeapAccountsRepository(file.toString());
+        reloaded.load();
+        assertEquals(new String(twoByte.getBytes(CHARSET), CHARSET), reloaded.get("00001").getName());
+        assertEquals(new String(threeByte.getBytes(CHARSET), CHARSET), reloaded.get("00002").getName());
+        assertEquals('D', reloaded.get("00002").getStatus());
+    }
+}
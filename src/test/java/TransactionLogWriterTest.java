@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TransactionLogWriterTest.java
+ - Records reach the file as their toFixed40() lines, in order, when they
+   fill the buffers many times over, and non-ASCII records are written in
+   the platform charset.
+ - open() appends to or replaces an existing file, and a writer is reused
+   across sessions; close() writes out what is still buffered.
+ */
+class TransactionLogWriterTest {
+    // two buffers of two records each, so a gathering write happens every four records
+    private static final int BUFFER_BYTES = 2 * TransactionLogWriter.MAX_RECORD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsFillingTheBuffersStayInOrder() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        List<String> expected = new ArrayList<>();
+        TransactionLogWriter writer = new TransactionLogWriter(BUFFER_BYTES, 2);
+        writer.open(file, false);
+        for (int n = 0; n < 1000; n++) {
+            TransactionRecord record = new TransactionRecord("0" + (1 + n % 8), "Holder" + n % 7, FixedFmt.acct5(n), n, "");
+            writer.append(record, n);
+            expected.add(record.toFixed40());
+        }
+        writer.close();
+
+        assertEquals(expected, Files.readAllLines(file, Charset.defaultCharset()));
+    }
+
+    @Test
+    void nonAsciiRecordIsWrittenInThePlatformCharset() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionRecord record = new TransactionRecord("01", "Zoë Ünal", "00001", 100, "");
+        TransactionLogWriter writer = new TransactionLogWriter(BUFFER_BYTES, 2);
+        writer.open(file, false);
+        int bytes = writer.append(record, 1);
+        writer.close();
+
+        assertEquals(List.of(record.toFixed40()), Files.readAllLines(file, Charset.defaultCharset()));
+        assertEquals(bytes, Files.size(file));
+    }
+
+    @Test
+    void openAppendsOrReplaces() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionRecord first = new TransactionRecord("01", "Ann", "00001", 100, "");
+        TransactionRecord second = new TransactionRecord("02", "Bob", "00002", 200, "");
+        TransactionLogWriter writer = new TransactionLogWriter(BUFFER_BYTES, 2);
+
+        writer.open(file, false);
+        writer.append(first, 1);
+        writer.close();
+        writer.open(file, true);
+        writer.append(second, 2);
+        writer.close();
+        assertEquals(List.of(first.toFixed40(), second.toFixed40()), Files.readAllLines(file));
+
+        writer.open(file, false);
+        writer.append(second, 3);
+        writer.close();
+        assertEquals(List.of(second.toFixed40()), Files.readAllLines(file));
+        assertFalse(writer.isOpen());
+    }
+}
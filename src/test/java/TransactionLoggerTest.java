@@ -0,0 +1,207 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TransactionLoggerTest.java
+ - In streaming mode sessions are appended to the file, where the default
+   mode replaces it at logout, and records reach the file while the
+   session is still running instead of being kept in memory.
+ - A streaming session that goes quiet still has its records forced under
+   INTERVAL durability.
+ - A segmented logger that stops without logging out (a crash) loses none
+   of its forced records when the next logger resumes the log, whether the
+   segments are written as text, in binary or memory mapped, and a record
+   torn by the crash is cut off before the next one is appended.
+ */
+class TransactionLoggerTest {
+    private static final TransactionRecord RECORD = new TransactionRecord("01", "Ann", "00001", 100, "");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamingSessionsAreAppended() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionLogger logger = new TransactionLogger(file.toString());
+        logger.setStreaming(true);
+        logger.add(RECORD);
+        logger.writeAndClear();
+        logger.add(RECORD);
+        logger.writeAndClear();
+
+        String end = new TransactionRecord("00", "", "00000", 0, "").toFixed40();
+        assertEquals(List.of(RECORD.toFixed40(), end, RECORD.toFixed40(), end), Files.readAllLines(file));
+    }
+
+    @Test
+    void defaultModeReplacesTheFileAtLogout() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionLogger logger = new TransactionLogger(file.toString());
+        logger.add(RECORD);
+        logger.writeAndClear();
+        logger.add(RECORD);
+        logger.writeAndClear();
+
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void streamingRecordsReachTheFileBeforeLogout() throws IOException {
+        Path file = dir.resolve("transactions.txt");
+        TransactionLogger logger = new TransactionLogger(file.toString());
+        logger.setStreaming(true);
+        // more records than the writer buffers hold, so most are written during the session
+        for (int n = 0; n < 20_000; n++) logger.add(RECORD);
+
+        assertTrue(Files.size(file) > 10_000L * RECORD.toFixed40().length());
+        logger.writeAndClear();
+        assertEquals(20_001, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void quietStreamingSessionIsForcedAfterTheInterval() throws InterruptedException {
+        TransactionLogger logger = new TransactionLogger(dir.resolve("transactions.txt").toString());
+        logger.setStreaming(true);
+        logger.setDurability(TransactionLogger.Durability.INTERVAL, 20);
+
+        logger.add(RECORD);
+        logger.add(RECORD);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (logger.getSyncStats().getRecordCount() < 2 && System.nanoTime() < deadline) Thread.sleep(5);
+
+        assertEquals(2, logger.getSyncStats().getRecordCount());
+        assertTrue(logger.getSyncStats().getSyncCount() <= 2);
+        logger.writeAndClear();
+    }
+
+    @Test
+    void resumedTextSegmentKeepsRecordsWrittenAfterTheIndex() throws IOException {
+        Path log = dir.resolve("tx.txt");
+        crashAfterFiveRecords(log, false, false);
+
+        TransactionLogger resumed = segmentedLogger(log, false, false);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        // five records, the next session's record and its end of session record
+        List<String> lines = Files.readAllLines(Path.of(log + ".000001"), StandardCharsets.US_ASCII);
+        assertEquals(7, lines.size());
+        assertEquals(RECORD.toFixed40(), lines.get(0));
+        List<TransactionLogSegments.Segment> segments = TransactionLogSegments.readIndex(log.toString());
+        assertEquals(1, segments.size());
+        assertEquals(1, segments.get(0).getFirstSequence());
+        assertEquals(7, segments.get(0).getLastSequence());
+        assertEquals(Files.size(Path.of(log + ".000001")), segments.get(0).getByteCount());
+    }
+
+    @Test
+    void resumedBinarySegmentKeepsRecordsWrittenAfterTheIndex() throws IOException {
+        Path log = dir.resolve("tx.bin");
+        crashAfterFiveRecords(log, true, false);
+
+        TransactionLogger resumed = segmentedLogger(log, true, false);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        long records = 0, sequence = 0;
+        try (BinaryTransactionLog.Reader reader = BinaryTransactionLog.open(Path.of(log + ".000001"))) {
+            while (reader.next()) {
+                assertEquals(++sequence, reader.getSequence());
+                records++;
+            }
+        }
+        assertEquals(7, records);
+        assertEquals(7, TransactionLogSegments.readIndex(log.toString()).get(0).getLastSequence());
+    }
+
+    @Test
+    void resumedMappedSegmentKeepsRecordsWrittenAfterTheIndex() throws IOException {
+        Path log = dir.resolve("tx.txt");
+        crashAfterFiveRecords(log, false, true);
+
+        TransactionLogger resumed = segmentedLogger(log, false, true);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        assertEquals(7, Files.readAllLines(Path.of(log + ".000001"), StandardCharsets.US_ASCII).size());
+        assertEquals(7, TransactionLogSegments.readIndex(log.toString()).get(0).getLastSequence());
+    }
+
+    @Test
+    void segmentFilesBeyondTheIndexAreTakenIntoIt() throws IOException {
+        Path log = dir.resolve("tx.txt");
+        crashAfterFiveRecords(log, false, false);
+        Files.delete(Path.of(log + ".index")); // as if the crash came before the first index write
+
+        TransactionLogger resumed = segmentedLogger(log, false, false);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        assertEquals(7, Files.readAllLines(Path.of(log + ".000001"), StandardCharsets.US_ASCII).size());
+        assertEquals(7, TransactionLogSegments.readIndex(log.toString()).get(0).getLastSequence());
+    }
+
+    @Test
+    void tornTextRecordIsCutOffBeforeAppending() throws IOException {
+        Path log = dir.resolve("tx.txt");
+        crashAfterFiveRecords(log, false, false);
+        Files.write(Path.of(log + ".000001"), "01 Ann  ".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        TransactionLogger resumed = segmentedLogger(log, false, false);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        List<String> lines = Files.readAllLines(Path.of(log + ".000001"), StandardCharsets.US_ASCII);
+        assertEquals(7, lines.size());
+        for (String line : lines) assertEquals(40, line.length());
+        assertEquals(RECORD.toFixed40(), lines.get(5));
+        assertEquals(7, TransactionLogSegments.readIndex(log.toString()).get(0).getLastSequence());
+    }
+
+    @Test
+    void tornBinaryEntryIsCutOffBeforeAppending() throws IOException {
+        Path log = dir.resolve("tx.bin");
+        crashAfterFiveRecords(log, true, false);
+        // a record entry whose account number never ends
+        Files.write(Path.of(log + ".000001"), new byte[] { 1, (byte) 0x80 }, StandardOpenOption.APPEND);
+
+        TransactionLogger resumed = segmentedLogger(log, true, false);
+        resumed.add(RECORD);
+        resumed.writeAndClear();
+
+        long records = 0;
+        try (BinaryTransactionLog.Reader reader = BinaryTransactionLog.open(Path.of(log + ".000001"))) {
+            while (reader.next()) assertEquals(++records, reader.getSequence());
+        }
+        assertEquals(7, records);
+        assertEquals(7, TransactionLogSegments.readIndex(log.toString()).get(0).getLastSequence());
+    }
+
+    // five records forced one by one into the first segment, then no logout
+    private TransactionLogger crashAfterFiveRecords(Path log, boolean binary, boolean mapped) throws IOException {
+        TransactionLogger logger = segmentedLogger(log, binary, mapped);
+        for (int i = 0; i < 5; i++) logger.add(RECORD);
+        assertTrue(Files.exists(Path.of(log + ".index")), "segment not indexed when created");
+        return logger;
+    }
+
+    private static TransactionLogger segmentedLogger(Path log, boolean binary, boolean mapped) {
+        TransactionLogger logger = new TransactionLogger(log.toString());
+        logger.setStreaming(true);
+        logger.setDurability(TransactionLogger.Durability.RECORD, 0);
+        logger.setSegmented(1 << 20, Long.MAX_VALUE);
+        logger.setBinary(binary);
+        logger.setMapped(mapped);
+        return logger;
+    }
+}
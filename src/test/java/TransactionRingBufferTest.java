@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TransactionRingBufferTest.java
+ - Several producers publishing into a ring much smaller than what they
+   send: the consumer sees every record exactly once, each producer's
+   records in the order it published them, and sequence numbers with no gaps.
+ */
+class TransactionRingBufferTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 20_000;
+
+    @Test
+    void everyRecordArrivesOnceInEachProducersOrder() throws InterruptedException {
+        TransactionRingBuffer ring = new TransactionRingBuffer(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            String code = String.format("%02d", p + 1);
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    TransactionRecord r = new TransactionRecord(code, "Producer", "00001", i, "");
+                    while (ring.offer(r) < 0) Thread.yield(); // full: wait for the consumer
+                }
+            });
+            t.start();
+            producers.add(t);
+        }
+        start.countDown();
+
+        // the producer is the code, its record number the amount
+        long[] next = new long[PRODUCERS];
+        FixedRecordDecoder decoder = new FixedRecordDecoder();
+        long received = 0;
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (received < (long) PRODUCERS * PER_PRODUCER) {
+            assertTrue(System.nanoTime() < deadline, "timed out after " + received + " records");
+            TransactionRecord r = ring.poll();
+            if (r == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(decoder.decodeTransaction(r.toFixed40().getBytes(StandardCharsets.US_ASCII), 0));
+            int p = decoder.getCode() - 1;
+            assertEquals(next[p]++, decoder.getCents(), "producer " + (p + 1) + " out of order");
+            received++;
+        }
+        for (Thread t : producers) t.join();
+
+        assertNull(ring.poll());
+        assertEquals(received, ring.nextSequence());
+        for (long n : next) assertEquals(PER_PRODUCER, n);
+    }
+
+    @Test
+    void fullRingRefusesUntilTheConsumerFreesASlot() {
+        TransactionRingBuffer ring = new TransactionRingBuffer(4);
+        TransactionRecord r = new TransactionRecord("01", "Ann", "00001", 0, "");
+        for (int i = 0; i < 4; i++) assertEquals(i, ring.offer(r));
+        assertEquals(-1, ring.offer(r));
+
+        assertSame(r, ring.poll());
+        assertEquals(4, ring.offer(r));
+        assertEquals(-1, ring.offer(r));
+    }
+}